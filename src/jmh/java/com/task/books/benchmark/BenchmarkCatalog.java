@@ -0,0 +1,103 @@
+package com.task.books.benchmark;
+
+import com.task.books.BooksApplication;
+import com.task.books.service.BookRatingService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Starts the application against a private in-memory H2 database seeded with a synthetic catalog
+final class BenchmarkCatalog implements AutoCloseable {
+
+    static final String[] WORDS = {"dragon", "potter", "winter", "shadow", "river", "crown", "empire", "garden",
+            "storm", "night", "glass", "iron", "silver", "ocean", "forest", "castle", "secret", "stone", "fire", "song"};
+    static final int AUTHORS = 500;
+    static final int CLIENTS = 1000;
+    static final int RATINGS_PER_BOOK = 5;
+
+    private final ConfigurableApplicationContext context;
+    private final int books;
+
+    private BenchmarkCatalog(ConfigurableApplicationContext context, int books) {
+        this.context = context;
+        this.books = books;
+    }
+
+    static BenchmarkCatalog start(int books) {
+        return start(books, WebApplicationType.NONE);
+    }
+
+    static BenchmarkCatalog start(int books, WebApplicationType webApplicationType, String... properties) {
+        // devtools would relaunch the calling main method in a restart class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> defaults = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "logging.level.root=WARN"));
+        defaults.addAll(List.of(properties));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BooksApplication.class)
+                .web(webApplicationType)
+                .profiles("test")
+                .properties(defaults.toArray(String[]::new))
+                .run();
+        BenchmarkCatalog catalog = new BenchmarkCatalog(context, books);
+        catalog.seed();
+        return catalog;
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    int books() {
+        return books;
+    }
+
+    int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private void seed() {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+
+        List<Object[]> authorRows = new ArrayList<>();
+        for (int id = 1; id <= AUTHORS; id++) {
+            authorRows.add(new Object[]{id, "Author " + WORDS[id % WORDS.length] + " " + id});
+        }
+        jdbc.batchUpdate("INSERT INTO authors (author_id, name) VALUES (?, ?)", authorRows);
+
+        List<Object[]> clientRows = new ArrayList<>();
+        for (int id = 1; id <= CLIENTS; id++) {
+            clientRows.add(new Object[]{id, "Client " + id});
+        }
+        jdbc.batchUpdate("INSERT INTO clients (client_id, name) VALUES (?, ?)", clientRows);
+
+        List<Object[]> bookRows = new ArrayList<>();
+        List<Object[]> bookAuthorRows = new ArrayList<>();
+        List<Object[]> ratingRows = new ArrayList<>();
+        for (int id = 1; id <= books; id++) {
+            String title = "The " + WORDS[id % WORDS.length] + " of " + WORDS[(id / WORDS.length) % WORDS.length] + " " + id;
+            bookRows.add(new Object[]{id, title, 1900 + id % 120});
+            bookAuthorRows.add(new Object[]{id, 1 + id % AUTHORS});
+            if (id % 3 == 0) {
+                bookAuthorRows.add(new Object[]{id, 1 + (id * 7) % AUTHORS});
+            }
+            for (int k = 0; k < RATINGS_PER_BOOK; k++) {
+                ratingRows.add(new Object[]{id, 1 + (id * 31 + k * 197) % CLIENTS, 1 + (id + k) % 5});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO books (book_id, title, published_year, average_rating, rating_sum, rating_count) VALUES (?, ?, ?, 0, 0, 0)", bookRows);
+        jdbc.batchUpdate("INSERT INTO book_author (book_id, author_id) VALUES (?, ?) ON CONFLICT DO NOTHING", bookAuthorRows);
+        jdbc.batchUpdate("INSERT INTO book_rating (book_id, client_id, rating) VALUES (?, ?, ?) ON CONFLICT DO NOTHING", ratingRows);
+
+        bean(BookRatingService.class).rebuildRatingAggregates();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
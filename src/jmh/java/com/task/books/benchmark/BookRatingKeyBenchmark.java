@@ -0,0 +1,47 @@
+package com.task.books.benchmark;
+
+import com.task.books.model.BookRatingKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Hashing and map lookups of the composite rating key
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookRatingKeyBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private BookRatingKey[] keys;
+    private BookRatingKey[] probes;
+    private Map<BookRatingKey, Integer> ratings;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        keys = new BookRatingKey[KEYS];
+        probes = new BookRatingKey[KEYS];
+        ratings = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = new BookRatingKey(i / 10, i % 1000);
+            probes[i] = new BookRatingKey(i / 10, i % 1000);
+            ratings.put(keys[i], i % 5 + 1);
+        }
+    }
+
+    @Benchmark
+    public int hashCodeOfKey() {
+        return keys[next++ % KEYS].hashCode();
+    }
+
+    @Benchmark
+    public Integer lookupByEqualKey() {
+        return ratings.get(probes[next++ % KEYS]);
+    }
+}
@@ -0,0 +1,75 @@
+package com.task.books.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.books.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of filter results, books with their authors and ratings
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookSerializationBenchmark {
+
+    @Param({"10", "500"})
+    int books;
+
+    private ObjectMapper objectMapper;
+    private List<Book> result;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        result = books(books);
+    }
+
+    @Benchmark
+    public byte[] serializeBooks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(result);
+    }
+
+    static List<Book> books(int count) {
+        List<Author> authors = new ArrayList<>();
+        for (int i = 1; i <= BenchmarkCatalog.AUTHORS; i++) {
+            Author author = new Author("Author " + i);
+            author.setAuthorId(i);
+            authors.add(author);
+        }
+        List<Client> clients = new ArrayList<>();
+        for (int i = 1; i <= BenchmarkCatalog.CLIENTS; i++) {
+            Client client = new Client("Client " + i);
+            client.setClientId(i);
+            clients.add(client);
+        }
+
+        List<Book> books = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            Book book = new Book("The " + BenchmarkCatalog.WORDS[id % BenchmarkCatalog.WORDS.length] + " " + id, 1900 + id % 120, 0.0);
+            book.setBookId(id);
+            book.setAuthors(Set.of(authors.get(id % authors.size())));
+            Set<BookRating> ratings = new HashSet<>();
+            long sum = 0;
+            for (int k = 0; k < BenchmarkCatalog.RATINGS_PER_BOOK; k++) {
+                Client client = clients.get((id * 31 + k * 197) % clients.size());
+                int rating = 1 + (id + k) % 5;
+                ratings.add(new BookRating(new BookRatingKey(id, client.getClientId()), book, client, rating));
+                sum += rating;
+            }
+            book.setRatings(ratings);
+            book.setRatingSum(sum);
+            book.setRatingCount((long) ratings.size());
+            book.setAvgRating((double) sum / ratings.size());
+            books.add(book);
+        }
+        return books;
+    }
+}
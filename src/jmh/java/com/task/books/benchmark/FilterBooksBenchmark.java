@@ -0,0 +1,50 @@
+package com.task.books.benchmark;
+
+import com.task.books.model.Book;
+import com.task.books.service.BookService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// BookService.filterBooks over growing catalogs, one filter combination per run
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBooksBenchmark {
+
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    @Param({"none", "title", "year", "author", "rating", "all"})
+    String filter;
+
+    private BenchmarkCatalog catalog;
+    private BookService bookService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkCatalog.start(catalogSize);
+        bookService = catalog.bean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public List<Book> filterBooks() {
+        return switch (filter) {
+            case "title" -> bookService.filterBooks("dragon", null, null, null);
+            case "year" -> bookService.filterBooks(null, 1997, null, null);
+            case "author" -> bookService.filterBooks(null, null, "winter", null);
+            case "rating" -> bookService.filterBooks(null, null, null, 4.0);
+            case "all" -> bookService.filterBooks("the", 1997, "author", 2.0);
+            default -> bookService.filterBooks(null, null, null, null);
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.task.books.benchmark;
+
+import com.task.books.model.Book;
+import com.task.books.service.BookRatingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// BookRatingService.rateBook, mixing first ratings and re-rates of random books
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateBookBenchmark {
+
+    @Param({"1000"})
+    int catalogSize;
+
+    private BenchmarkCatalog catalog;
+    private BookRatingService bookRatingService;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = BenchmarkCatalog.start(catalogSize);
+        bookRatingService = catalog.bean(BookRatingService.class);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public Book rateBook() {
+        int bookId = 1 + random.nextInt(catalog.books());
+        int clientId = 1 + random.nextInt(BenchmarkCatalog.CLIENTS);
+        return bookRatingService.rateBook(bookId, clientId, 1 + random.nextInt(5));
+    }
+}
@@ -0,0 +1,130 @@
+package com.task.books.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Closed-loop HTTP load test comparing Tomcat on platform threads with Tomcat on virtual threads.
+// Every client sends its next request as soon as the previous one answered, 80% paged filters and 20% ratings.
+// Arguments: [clients=1000] [seconds=20] [catalogSize=2000] [poolSize=50]
+public class ThreadModeLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = argument(args, 0, 1000);
+        int seconds = argument(args, 1, 20);
+        int catalogSize = argument(args, 2, 2000);
+        int poolSize = argument(args, 3, 50);
+
+        List<String> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (BenchmarkCatalog catalog = BenchmarkCatalog.start(catalogSize, WebApplicationType.SERVLET,
+                    "server.port=0",
+                    "spring.threads.virtual.enabled=" + virtual,
+                    "spring.datasource.hikari.maximum-pool-size=" + poolSize)) {
+                run(catalog, clients, 2);
+                Result result = run(catalog, clients, seconds);
+                results.add(String.format("%-9s %8d %6d %10.1f %8.1f %8.1f",
+                        virtual ? "virtual" : "platform", result.requests(), result.errors(),
+                        result.requests() / (double) seconds, result.percentileMs(0.50), result.percentileMs(0.99)));
+            }
+        }
+
+        System.out.printf("%n%d clients, %d s, %d books, pool of %d connections%n", clients, seconds, catalogSize, poolSize);
+        System.out.printf("%-9s %8s %6s %10s %8s %8s%n", "threads", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        results.forEach(System.out::println);
+    }
+
+    private static Result run(BenchmarkCatalog catalog, int clients, int seconds) throws Exception {
+        String baseUrl = "http://localhost:" + catalog.port() + "/api/books";
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(executor)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                futures.add(executor.submit(() -> drive(client, baseUrl, catalog, random, deadline)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return Result.merge(results);
+        }
+    }
+
+    private static Result drive(HttpClient client, String baseUrl, BenchmarkCatalog catalog, SplittableRandom random, long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        int errors = 0;
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = random.nextInt(5) == 0
+                    ? HttpRequest.newBuilder(URI.create(baseUrl + "/rate/" + (1 + random.nextInt(catalog.books()))))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"clientId\": " + (1 + random.nextInt(BenchmarkCatalog.CLIENTS))
+                            + ", \"rating\": " + (1 + random.nextInt(5)) + "}"))
+                    .build()
+                    : HttpRequest.newBuilder(URI.create(baseUrl + "/filter?limit=20&year=" + (1900 + random.nextInt(120)))).GET().build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors++;
+                }
+            } catch (Exception ex) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return new Result(Arrays.copyOf(latencies, count), errors);
+    }
+
+    private static int argument(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private record Result(long[] latencies, int errors) {
+
+        int requests() {
+            return latencies.length;
+        }
+
+        static Result merge(List<Result> results) {
+            long[] merged = new long[results.stream().mapToInt(Result::requests).sum()];
+            int offset = 0;
+            int errors = 0;
+            for (Result result : results) {
+                System.arraycopy(result.latencies, 0, merged, offset, result.latencies.length);
+                offset += result.latencies.length;
+                errors += result.errors;
+            }
+            Arrays.sort(merged);
+            return new Result(merged, errors);
+        }
+
+        double percentileMs(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            // latencies are sorted by merge
+            return latencies[(int) Math.min(latencies.length - 1, Math.ceil(percentile * latencies.length) - 1)] / 1_000_000.0;
+        }
+    }
+}
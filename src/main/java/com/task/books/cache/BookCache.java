@@ -0,0 +1,126 @@
+package com.task.books.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.books.model.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+// Bounded read-through cache of fully loaded books, evicted by size and TTL
+@Component
+public class BookCache {
+    public static final String NAME = "books";
+
+    private static final int STRIPES = 1024;
+
+    private final Cache<Integer, Book> cache;
+
+    // Invalidation counters per stripe of ids, a load that overlapped an invalidation is not cached,
+    // so a read that started before a write committed can never put the old state back
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    @Autowired
+    public BookCache(@Value("${books.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${books.cache.ttl:10m}") Duration ttl,
+                     MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    // Returns the cached book or loads it, a null result is not cached
+    public Book get(Integer bookId, Function<Integer, Book> loader) {
+        Book cached = cache.getIfPresent(bookId);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = stripe(bookId);
+        long stamp = invalidations.get(stripe);
+        Book loaded = loader.apply(bookId);
+        if (loaded != null) {
+            cache.asMap().compute(bookId, (id, current) -> invalidations.get(stripe) == stamp ? loaded : current);
+        }
+        return loaded;
+    }
+
+    // Returns the cached books and loads all others with one call, books missing from its result are not cached
+    public Map<Integer, Book> getAll(Collection<Integer> bookIds, Function<Set<Integer>, Map<Integer, Book>> loader) {
+        Map<Integer, Book> books = new HashMap<>();
+        Map<Integer, Long> stamps = new HashMap<>();
+        for (Integer bookId : bookIds) {
+            Book cached = cache.getIfPresent(bookId);
+            if (cached != null) {
+                books.put(bookId, cached);
+            } else {
+                stamps.put(bookId, invalidations.get(stripe(bookId)));
+            }
+        }
+        if (stamps.isEmpty()) {
+            return books;
+        }
+        loader.apply(Set.copyOf(stamps.keySet())).forEach((bookId, loaded) -> {
+            long stamp = stamps.get(bookId);
+            cache.asMap().compute(bookId, (id, current) -> invalidations.get(stripe(id)) == stamp ? loaded : current);
+            books.put(bookId, loaded);
+        });
+        return books;
+    }
+
+    public Book getIfPresent(Integer bookId) {
+        return cache.getIfPresent(bookId);
+    }
+
+    public void invalidate(Integer bookId) {
+        invalidations.incrementAndGet(stripe(bookId));
+        cache.invalidate(bookId);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            invalidations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    // Inside a transaction the entry is dropped only once the change is visible to other readers
+    public void invalidateAfterCommit(Integer bookId) {
+        afterCommit(() -> invalidate(bookId));
+    }
+
+    public void invalidateAllAfterCommit() {
+        afterCommit(this::invalidateAll);
+    }
+
+    private static void afterCommit(Runnable invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidation.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidation.run();
+            }
+        });
+    }
+
+    private static int stripe(Integer bookId) {
+        return Math.floorMod(bookId.hashCode(), STRIPES);
+    }
+}
@@ -0,0 +1,60 @@
+package com.task.books.cache;
+
+import com.task.books.event.BookChangedEvent;
+import com.task.books.event.CatalogChangedEvent;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Counter advanced by every change of books or ratings, any filter result computed under the same generation
+// is still current, so the generation serves as the ETag of filter results. Kept in the database, so every
+// instance behind a load balancer sees the changes made through the others. It is advanced inside the writing
+// transaction: a change never commits without a new generation, and a failed advance fails the change.
+@Component
+public class CatalogGeneration {
+
+    private final CatalogGenerationRepository catalogGenerationRepository;
+    private final EntityManager entityManager;
+
+    @Autowired
+    public CatalogGeneration(CatalogGenerationRepository catalogGenerationRepository, EntityManager entityManager) {
+        this.catalogGenerationRepository = catalogGenerationRepository;
+        this.entityManager = entityManager;
+    }
+
+    // Read before running the query, a change committed meanwhile then only causes one extra full response.
+    // Weak, it tags every encoding of a result: JSON, CBOR and Smile, compressed or not.
+    public String etag() {
+        return "W/\"" + current() + "\"";
+    }
+
+    // Results computed under the same value are still current, a value read before the query makes a result
+    // that overlapped a change look outdated at once. Read like the results it tags, from the replica unless the
+    // request is pinned to the primary: a lagging replica then reports the generation it has caught up with,
+    // so a result is never tagged or cached under a generation newer than the data it was computed from.
+    public long current() {
+        return catalogGenerationRepository.current();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onBookChanged(BookChangedEvent event) {
+        advance();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        advance();
+    }
+
+    // For writes without a change event in their transaction, e.g. every batch of an import.
+    // Pending entity changes are written first, so the slot is the last row the transaction locks.
+    public void advance() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+        catalogGenerationRepository.advance();
+    }
+}
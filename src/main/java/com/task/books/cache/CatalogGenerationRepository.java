@@ -0,0 +1,38 @@
+package com.task.books.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// The slots of catalog_generation, read and advanced over JDBC. The generation is the sum of all slots.
+@Repository
+class CatalogGenerationRepository {
+
+    // As many as V6__stripe_catalog_generation.sql creates
+    static final int SLOTS = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    CatalogGenerationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // A read-only transaction, so it is routed like the reads of the results the generation tags
+    @Transactional(readOnly = true)
+    long current() {
+        Long generation = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(generation), 0) FROM catalog_generation", Long.class);
+        return generation == null ? 0 : generation;
+    }
+
+    // Joins the writing transaction, so the row is locked until it commits. A thread always takes the same slot,
+    // a transaction advancing twice never waits for itself or locks two slots another transaction could cross.
+    void advance() {
+        int slot = (int) Math.floorMod(Thread.currentThread().threadId(), (long) SLOTS);
+        int updated = jdbcTemplate.update("UPDATE catalog_generation SET generation = generation + 1 WHERE slot = ?", slot);
+        if (updated != 1) {
+            throw new IllegalStateException("catalog_generation has no slot " + slot);
+        }
+    }
+}
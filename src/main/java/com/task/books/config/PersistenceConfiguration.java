@@ -0,0 +1,52 @@
+package com.task.books.config;
+
+import com.task.books.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+
+// JPA serves all writes, R2DBC only the reactive reads. Spring Boot backs off the JDBC side as soon as
+// an R2DBC connection factory exists, so the DataSource and everything built on it is declared here.
+// Flyway migrates the schema over this DataSource before Hibernate validates the mapping against it.
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class PersistenceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Connections are only fetched when the first statement runs, by then the transaction manager has marked
+    // read-only transactions, and those are sent to the replica when books.datasource.replica.url is set
+    @Bean
+    @Primary
+    public LazyConnectionDataSourceProxy dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                    @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        replicaDataSource.ifAvailable(replica ->
+                dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primaryDataSource, replica)));
+        return dataSource;
+    }
+
+    // @Transactional keeps resolving to JPA next to the reactive transaction manager
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,56 @@
+package com.task.books.config;
+
+import com.github.benmanes.caffeine.jcache.CacheManagerImpl;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.Properties;
+
+// Hibernate second-level cache for reference data that hardly ever changes: authors, clients and the authors
+// of every book. Region sizes are set in hibernate-cache.conf, a region missing there fails the startup.
+@Configuration
+public class SecondLevelCacheConfiguration {
+
+    public static final String AUTHORS = "authors";
+    public static final String CLIENTS = "clients";
+    public static final String BOOK_AUTHORS = "book-authors";
+
+    static final List<String> REGIONS = List.of(AUTHORS, CLIENTS, BOOK_AUTHORS);
+
+    // Created directly instead of through Caching, which hands out one shared manager per URI and class loader.
+    // Every application context owns its regions, so contexts sharing a database never see each other's entries.
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        return new CacheManagerImpl(Caching.getCachingProvider(CaffeineCachingProvider.class.getName()), false,
+                URI.create("classpath:hibernate-cache.conf"), getClass().getClassLoader(), new Properties());
+    }
+
+    // Hibernate uses this cache manager instead of creating its own, so its regions can be monitored
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+        };
+    }
+
+    // Size, hit, put, removal and eviction counts per region as cache.* meters tagged with the region name
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager secondLevelCacheManager) {
+        return registry -> REGIONS.forEach(region ->
+                JCacheMetrics.monitor(registry, secondLevelCacheManager.getCache(region)));
+    }
+}
@@ -1,38 +1,130 @@
 package com.task.books.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.books.cache.CatalogGeneration;
+import com.task.books.datasource.ReplicaRoutingDataSource;
 import com.task.books.model.Book;
+import com.task.books.request.BookBatchRateRequest;
 import com.task.books.request.BookRateRequest;
+import com.task.books.service.BookImportService;
 import com.task.books.service.BookRatingService;
 import com.task.books.service.BookService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final BookService bookService;
     private final BookRatingService bookRatingService;
+    private final BookImportService bookImportService;
+    private final CatalogGeneration catalogGeneration;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public BookController(BookService bookService, BookRatingService bookRatingService) {
+    public BookController(BookService bookService, BookRatingService bookRatingService, BookImportService bookImportService, CatalogGeneration catalogGeneration, ObjectMapper objectMapper) {
         this.bookService = bookService;
         this.bookRatingService = bookRatingService;
+        this.bookImportService = bookImportService;
+        this.catalogGeneration = catalogGeneration;
+        this.objectMapper = objectMapper;
     }
 
-    // Get all books with optional filters
+    // Get all books with optional filters. The filter endpoints are tagged with the catalog generation,
+    // a matching If-None-Match is answered with 304 before any query runs.
     @GetMapping("/filter")
-    public List<Book> getBooks(
+    public ResponseEntity<List<Book>> getBooks(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) String author,
-            @RequestParam(required = false) Double rating) {
-        return bookService.filterBooks(title, year, author, rating);
+            @RequestParam(required = false) Double rating,
+            WebRequest webRequest) {
+        String etag = catalogGeneration.etag();
+        NegotiatedResponses.varyByAccept(webRequest);
+        if (webRequest.checkNotModified(etag)) {
+            // The 304 response has been written already
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(bookService.filterBooks(title, year, author, rating));
+    }
+
+    // Get one page of filtered books, continue with the returned cursor as "after"
+    @GetMapping(value = "/filter", params = "limit")
+    public ResponseEntity<?> getBooksPage(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Double rating,
+            @RequestParam(required = false) String after,
+            @RequestParam int limit,
+            WebRequest webRequest) {
+        String etag = catalogGeneration.etag();
+        NegotiatedResponses.varyByAccept(webRequest);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok().eTag(etag).body(bookService.filterBooksPage(title, year, author, rating, after, limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"message\": \"" + ex.getMessage() + "\"}");
+        }
+    }
+
+    // Stream all filtered books as a JSON array, written while the rows are still being read
+    @GetMapping(value = "/filter", params = {"stream=true", "!limit"})
+    public ResponseEntity<StreamingResponseBody> streamBooks(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Double rating,
+            WebRequest webRequest) {
+        String etag = catalogGeneration.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        // Written on another thread, which does not inherit the read-your-writes pin of the request
+        boolean pinnedToPrimary = ReplicaRoutingDataSource.isPinnedToPrimary();
+        StreamingResponseBody body = outputStream -> {
+            if (pinnedToPrimary) {
+                ReplicaRoutingDataSource.pinToPrimary();
+            }
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                bookService.streamBooks(title, year, author, rating, STREAM_CHUNK_SIZE, books -> {
+                    try {
+                        for (Book book : books) {
+                            generator.writeObject(book);
+                        }
+                        generator.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                generator.writeEndArray();
+            } finally {
+                if (pinnedToPrimary) {
+                    ReplicaRoutingDataSource.unpin();
+                }
+            }
+        };
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     // Rate a book by client
@@ -41,9 +133,63 @@ public class BookController {
         return bookRatingService.rateBook(id, bookRateRequest.getClientId(), bookRateRequest.getRating());
     }
 
+    // Rate many books in one request, invalid items are reported without rejecting the whole batch
+    @PostMapping("/rate/batch")
+    public ResponseEntity<?> rateBooks(@RequestBody List<BookBatchRateRequest> bookBatchRateRequests) {
+        try {
+            return ResponseEntity.ok(bookRatingService.rateBooks(bookBatchRateRequests));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"message\": \"" + ex.getMessage() + "\"}");
+        }
+    }
+
+    // Import a catalog streamed as NDJSON or as CSV with a "title,year,authors" header and authors separated by ';'
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<?> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        BookImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? BookImportService.Format.CSV
+                : BookImportService.Format.NDJSON;
+        try {
+            return ResponseEntity.ok(bookImportService.importBooks(body, format));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"message\": \"" + ex.getMessage() + "\"}");
+        }
+    }
+
+    // Fetch up to 1000 books in one request, e.g. /api/books?ids=3,1,2, answered in the order of the ids
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getBooksByIds(@RequestParam List<Integer> ids) {
+        try {
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(bookService.getBooksByIds(ids));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"message\": \"" + ex.getMessage() + "\"}");
+        }
+    }
+
+    // Tagged with the version of the book, an unchanged book is answered with 304 without loading it
     @GetMapping("/{id}")
-    public Book getBookById(@PathVariable Integer id) {
-        return bookService.getBookById(id);
+    public ResponseEntity<Book> getBookById(@PathVariable Integer id, WebRequest webRequest) {
+        NegotiatedResponses.varyByAccept(webRequest);
+        // Only a conditional request pays for the version lookup
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Long version = bookService.getBookVersion(id);
+            if (version != null && webRequest.checkNotModified(etag(version))) {
+                return null;
+            }
+        }
+        Book book = bookService.getBookById(id);
+        if (book == null || book.getVersion() == null) {
+            return ResponseEntity.ok(book);
+        }
+        // Tagged with the version that was loaded, it may be newer than the one just compared
+        return ResponseEntity.ok().eTag(etag(book.getVersion())).body(book);
+    }
+
+    private static String etag(Long version) {
+        return NegotiatedResponses.weakETag(version);
     }
 
     @PostMapping
@@ -62,6 +208,17 @@ public class BookController {
         }
     }
 
+    // Delete up to 1000 books in one request, e.g. DELETE /api/books?ids=3,1,2
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<?> deleteBooks(@RequestParam List<Integer> ids) {
+        try {
+            return ResponseEntity.ok(bookService.deleteBooks(ids));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"message\": \"" + ex.getMessage() + "\"}");
+        }
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteBook(@PathVariable Integer id) {
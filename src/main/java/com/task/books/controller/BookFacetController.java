@@ -0,0 +1,43 @@
+package com.task.books.controller;
+
+import com.task.books.cache.CatalogGeneration;
+import com.task.books.response.BookFacets;
+import com.task.books.service.BookFacetService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/api/books")
+public class BookFacetController {
+
+    private final BookFacetService bookFacetService;
+    private final CatalogGeneration catalogGeneration;
+
+    @Autowired
+    public BookFacetController(BookFacetService bookFacetService, CatalogGeneration catalogGeneration) {
+        this.bookFacetService = bookFacetService;
+        this.catalogGeneration = catalogGeneration;
+    }
+
+    // Counts per year, author and rating bucket of the books matching the same filters as /filter,
+    // tagged with the catalog generation like the filter results
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacets> getFacets(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Double rating,
+            WebRequest webRequest) {
+        String etag = catalogGeneration.etag();
+        NegotiatedResponses.varyByAccept(webRequest);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(bookFacetService.getFacets(title, year, author, rating));
+    }
+}
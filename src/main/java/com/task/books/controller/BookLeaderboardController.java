@@ -0,0 +1,49 @@
+package com.task.books.controller;
+
+import com.task.books.leaderboard.BookLeaderboard;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/books")
+public class BookLeaderboardController {
+
+    private final BookLeaderboard bookLeaderboard;
+
+    @Autowired
+    public BookLeaderboardController(BookLeaderboard bookLeaderboard) {
+        this.bookLeaderboard = bookLeaderboard;
+    }
+
+    // Top rated books overall, of one year or of one author, served from the precomputed leaderboard
+    @GetMapping("/top")
+    public ResponseEntity<?> getTopBooks(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer authorId) {
+        try {
+            if (year != null && authorId != null) {
+                throw new IllegalArgumentException("Filter by either year or authorId");
+            }
+            if (year != null) {
+                return ResponseEntity.ok(bookLeaderboard.topOfYear(year, limit));
+            }
+            if (authorId != null) {
+                return ResponseEntity.ok(bookLeaderboard.topOfAuthor(authorId, limit));
+            }
+            return ResponseEntity.ok(bookLeaderboard.top(limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"message\": \"" + ex.getMessage() + "\"}");
+        } catch (EntityNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("{\"message\": \"" + ex.getMessage() + "\"}");
+        }
+    }
+}
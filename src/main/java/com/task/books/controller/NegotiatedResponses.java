@@ -0,0 +1,28 @@
+package com.task.books.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+// Bodies negotiated as JSON, CBOR or Smile share one ETag, so it is weak: the representations differ in bytes,
+// and Tomcat only compresses responses without a strong ETag. Vary keeps the representations apart in caches.
+final class NegotiatedResponses {
+
+    private NegotiatedResponses() {
+    }
+
+    static String weakETag(Object value) {
+        return "W/\"" + value + "\"";
+    }
+
+    // Set before the conditional check, so a 304 carries it as well
+    static void varyByAccept(WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletWebRequest) {
+            HttpServletResponse response = servletWebRequest.getResponse();
+            if (response != null) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.task.books.controller;
+
+import com.task.books.model.Book;
+import com.task.books.service.ReactiveBookService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking mirror of the read endpoints in BookController, no request thread waits on the database
+@RestController
+@RequestMapping("/api/reactive/books")
+public class ReactiveBookController {
+
+    private final ReactiveBookService reactiveBookService;
+
+    @Autowired
+    public ReactiveBookController(ReactiveBookService reactiveBookService) {
+        this.reactiveBookService = reactiveBookService;
+    }
+
+    // Streamed as newline-delimited JSON, one book per line, or collected into an array for application/json
+    @GetMapping(value = "/filter", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<Book> getBooks(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Double rating) {
+        return reactiveBookService.filterBooks(title, year, author, rating);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Book> getBookById(@PathVariable Integer id) {
+        return reactiveBookService.getBookById(id);
+    }
+}
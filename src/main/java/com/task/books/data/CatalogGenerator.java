@@ -0,0 +1,200 @@
+package com.task.books.data;
+
+import com.task.books.repository.BookImportRepository;
+import com.task.books.repository.BookImportRepository.NewBook;
+import com.task.books.repository.BookRepository;
+import com.task.books.service.BookRatingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Loads a synthetic catalog of configurable size for load and performance testing, see application-generator.properties.
+// Book popularity and client activity follow Zipf distributions, so a few books collect most of the ratings.
+// Batches are generated and written in parallel, each in its own transaction, and the result is reproducible for a seed.
+@Profile("generator")
+@Component
+public class CatalogGenerator implements CommandLineRunner {
+    private static final Logger log = LoggerFactory.getLogger(CatalogGenerator.class);
+
+    private static final String[] ADJECTIVES = {"Silent", "Crimson", "Hidden", "Last", "Broken", "Golden", "Endless", "Forgotten",
+            "Burning", "Distant", "Frozen", "Wandering", "Secret", "Iron", "Hollow", "Shattered", "Quiet", "Wild", "Lost", "Final"};
+    private static final String[] NOUNS = {"River", "Kingdom", "Garden", "Empire", "Shadow", "Crown", "Storm", "Winter", "Ocean",
+            "Forest", "Castle", "Song", "Stone", "Fire", "Road", "Mirror", "Harbor", "Tower", "City", "Dream"};
+    private static final String[] FIRST_NAMES = {"Anna", "James", "Maria", "John", "Elena", "David", "Sofia", "Michael", "Olga",
+            "Peter", "Clara", "Thomas", "Irene", "Lucas", "Nina", "Victor", "Laura", "Adam", "Julia", "Oscar"};
+    private static final String[] LAST_NAMES = {"Smith", "Novak", "Garcia", "Kowalski", "Muller", "Rossi", "Dubois", "Ivanova",
+            "Jensen", "Silva", "Tanaka", "Brown", "Nowak", "Larsen", "Costa", "Weber", "Moreau", "Horvat", "Young", "Berg"};
+    // Cumulative share of the ratings 1 to 5, skewed towards good ratings as in most review data
+    private static final double[] RATING_SHARES = {0.05, 0.13, 0.33, 0.68, 1.0};
+
+    private final BookImportRepository bookImportRepository;
+    private final BookRepository bookRepository;
+    private final BookRatingService bookRatingService;
+    private final TransactionTemplate transactionTemplate;
+    private final GeneratorSettings settings;
+
+    @Autowired
+    public CatalogGenerator(BookImportRepository bookImportRepository,
+                            BookRepository bookRepository,
+                            BookRatingService bookRatingService,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${books.generator.books:1000000}") int books,
+                            @Value("${books.generator.authors:100000}") int authors,
+                            @Value("${books.generator.clients:100000}") int clients,
+                            @Value("${books.generator.ratings:5000000}") int ratings,
+                            @Value("${books.generator.zipf-exponent:1.0}") double zipfExponent,
+                            @Value("${books.generator.batch-size:5000}") int batchSize,
+                            @Value("${books.generator.threads:4}") int threads,
+                            @Value("${books.generator.seed:42}") long seed) {
+        this.bookImportRepository = bookImportRepository;
+        this.bookRepository = bookRepository;
+        this.bookRatingService = bookRatingService;
+        this.transactionTemplate = transactionTemplate;
+        this.settings = new GeneratorSettings(books, authors, clients, ratings, zipfExponent, batchSize, threads, seed);
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (bookRepository.count() > 0) {
+            log.info("Catalog already contains books, generator skipped");
+            return;
+        }
+        long startedAt = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(settings.threads());
+        try {
+            int[] authorIds = shuffled(ids(inBatches(executor, "authors", settings.authors(), (random, from, to) ->
+                    bookImportRepository.insertAuthors(names(random, from, to)))), settings.seed());
+            int[] clientIds = shuffled(ids(inBatches(executor, "clients", settings.clients(), (random, from, to) ->
+                    bookImportRepository.insertClients(names(random, from, to)))), settings.seed() + 1);
+
+            ZipfDistribution authorPopularity = new ZipfDistribution(authorIds.length, settings.zipfExponent());
+            int[] bookIds = shuffled(ids(inBatches(executor, "books", settings.books(), (random, from, to) ->
+                    insertBooks(random, from, to, authorIds, authorPopularity))), settings.seed() + 2);
+
+            ZipfDistribution bookPopularity = new ZipfDistribution(bookIds.length, settings.zipfExponent());
+            ZipfDistribution clientActivity = new ZipfDistribution(clientIds.length, settings.zipfExponent());
+            int ratings = inBatches(executor, "ratings", settings.ratings(), (random, from, to) ->
+                    insertRatings(random, to - from, bookIds, bookPopularity, clientIds, clientActivity))
+                    .stream().mapToInt(Integer::intValue).sum();
+
+            bookRatingService.rebuildRatingAggregates();
+            log.info("Generated {} books, {} authors, {} clients and {} ratings in {} s",
+                    bookIds.length, authorIds.length, clientIds.length, ratings, (System.nanoTime() - startedAt) / 1_000_000_000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Integer> insertBooks(SplittableRandom random, int from, int to, int[] authorIds, ZipfDistribution authorPopularity) {
+        List<NewBook> books = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            String title = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                    + (random.nextInt(4) == 0 ? "" : " " + (i + 1));
+            books.add(new NewBook(title, 1900 + random.nextInt(125)));
+        }
+        List<Integer> bookIds = bookImportRepository.insertBooks(books);
+
+        // Mostly one author, sometimes two or three, prolific authors are picked more often
+        List<int[]> links = new ArrayList<>();
+        for (Integer bookId : bookIds) {
+            int count = random.nextInt(20) == 0 ? 3 : random.nextInt(6) == 0 ? 2 : 1;
+            Set<Integer> authors = new HashSet<>();
+            while (authors.size() < Math.min(count, authorIds.length)) {
+                authors.add(authorIds[authorPopularity.sample(random)]);
+            }
+            authors.forEach(authorId -> links.add(new int[]{bookId, authorId}));
+        }
+        bookImportRepository.insertBookAuthors(links);
+        return bookIds;
+    }
+
+    private int insertRatings(SplittableRandom random, int count, int[] bookIds, ZipfDistribution bookPopularity,
+                              int[] clientIds, ZipfDistribution clientActivity) {
+        List<int[]> ratings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int bookId = bookIds[bookPopularity.sample(random)];
+            int clientId = clientIds[clientActivity.sample(random)];
+            ratings.add(new int[]{bookId, clientId, rating(random)});
+        }
+        // Concurrent batches insert in the same key order, so they wait on each other instead of deadlocking
+        ratings.sort(Comparator.<int[]>comparingInt(rating -> rating[0]).thenComparingInt(rating -> rating[1]));
+        return bookImportRepository.insertRatings(ratings);
+    }
+
+    private static int rating(SplittableRandom random) {
+        double share = random.nextDouble();
+        int rating = 0;
+        while (share > RATING_SHARES[rating]) {
+            rating++;
+        }
+        return rating + 1;
+    }
+
+    // The number makes every name unique, author names have to be
+    private static List<String> names(SplittableRandom random, int from, int to) {
+        List<String> names = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            names.add(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)]
+                    + " " + Integer.toString(i + 1, 36));
+        }
+        return names;
+    }
+
+    // Runs one task per batch of [from, to) on the executor and returns the batch results in order,
+    // every batch gets its own random stream so the output does not depend on scheduling
+    private <T> List<T> inBatches(ExecutorService executor, String phase, int total, BatchTask<T> task)
+            throws InterruptedException, ExecutionException {
+        long startedAt = System.nanoTime();
+        SplittableRandom seeds = new SplittableRandom(settings.seed() ^ phase.hashCode());
+        List<Future<T>> futures = new ArrayList<>();
+        for (int from = 0; from < total; from += settings.batchSize()) {
+            int start = from;
+            int end = Math.min(total, from + settings.batchSize());
+            SplittableRandom random = seeds.split();
+            futures.add(executor.submit(() -> transactionTemplate.execute(status -> task.run(random, start, end))));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Generated {} {} in {} ms, {} rows/s", total, phase, elapsedMillis, total * 1000L / elapsedMillis);
+        return results;
+    }
+
+    private static int[] ids(List<List<Integer>> batches) {
+        return batches.stream().flatMap(List::stream).mapToInt(Integer::intValue).toArray();
+    }
+
+    // Popularity is assigned by rank, shuffling decouples it from insertion order
+    private static int[] shuffled(int[] ids, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+        return ids;
+    }
+
+    @FunctionalInterface
+    private interface BatchTask<T> {
+        T run(SplittableRandom random, int from, int to);
+    }
+
+    private record GeneratorSettings(int books, int authors, int clients, int ratings, double zipfExponent,
+                                     int batchSize, int threads, long seed) {
+    }
+}
@@ -2,6 +2,7 @@ package com.task.books.data;
 
 import com.task.books.model.*;
 import com.task.books.repository.*;
+import com.task.books.service.BookRatingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Profile;
@@ -10,7 +11,8 @@ import org.springframework.stereotype.Component;
 import java.util.List;
 import java.util.Set;
 
-@Profile("!test")
+// Small fixed data set for local runs, the "generator" profile loads a large synthetic one instead
+@Profile("!test & !generator")
 @Component
 public class DatabaseMockData implements CommandLineRunner{
     private final BookRepository bookRepository;
@@ -21,12 +23,15 @@ public class DatabaseMockData implements CommandLineRunner{
 
     private final BookRatingRepository bookRatingRepository;
 
+    private final BookRatingService bookRatingService;
+
     @Autowired
-    public DatabaseMockData(BookRepository bookRepository, AuthorRepository authorRepository, ClientRepository clientRepository, BookRatingRepository bookRatingRepository) {
+    public DatabaseMockData(BookRepository bookRepository, AuthorRepository authorRepository, ClientRepository clientRepository, BookRatingRepository bookRatingRepository, BookRatingService bookRatingService) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
         this.clientRepository = clientRepository;
         this.bookRatingRepository = bookRatingRepository;
+        this.bookRatingService = bookRatingService;
     }
 
     @Override
@@ -77,6 +82,9 @@ public class DatabaseMockData implements CommandLineRunner{
 
             bookRatingRepository.saveAll(List.of(rating1, rating2, rating3, rating4, rating5, rating6, rating7));
 
+            // Ratings were inserted directly, so derive the stored aggregates from them
+            bookRatingService.rebuildRatingAggregates();
+
             System.out.println("Mock data loaded into the database.");
         } else {
             System.out.println("Mock data already exists.");
@@ -0,0 +1,44 @@
+package com.task.books.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Read replica, only configured when books.datasource.replica.url is set, credentials default to the primary ones.
+// The pool is named "replica", so its hikaricp metrics are tagged apart from the "primary" pool.
+@Configuration
+@ConditionalOnProperty("books.datasource.replica.url")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("books.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${books.datasource.replica.url}") String url,
+                                              @Value("${books.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${books.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    // A zero window turns read-your-writes off, every read-only transaction then uses the replica
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${books.datasource.replica.read-your-writes-window:5s}") Duration window) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setEnabled(!window.isZero());
+        return registration;
+    }
+}
@@ -0,0 +1,11 @@
+package com.task.books.event;
+
+import java.util.Set;
+
+// Published inside the transaction that changed the rating, title, year or existence of these books
+public record BookChangedEvent(Set<Integer> bookIds) {
+
+    public static BookChangedEvent of(Integer bookId) {
+        return new BookChangedEvent(Set.of(bookId));
+    }
+}
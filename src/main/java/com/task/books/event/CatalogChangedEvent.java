@@ -0,0 +1,5 @@
+package com.task.books.event;
+
+// Published when books changed in bulk and listeners should reload everything they derived from them
+public record CatalogChangedEvent() {
+}
@@ -0,0 +1,113 @@
+package com.task.books.job;
+
+import com.task.books.cache.BookCache;
+import com.task.books.event.BookChangedEvent;
+import com.task.books.repository.BookRatingBatchRepository;
+import com.task.books.service.PendingRatingDeltas;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Writes the buffered rating aggregate deltas with one batched UPDATE per flush: every flush-interval,
+// as soon as max-pending-books books have deltas, and on shutdown. Idle unless write-behind is enabled.
+@Component
+public class RatingAggregateFlushJob {
+    private static final Logger log = LoggerFactory.getLogger(RatingAggregateFlushJob.class);
+
+    private final PendingRatingDeltas pendingRatingDeltas;
+    private final BookRatingBatchRepository bookRatingBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BookCache bookCache;
+    private final ApplicationEventPublisher eventPublisher;
+    // Not the application task executor: streamed responses run there and may wait for a flush
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("rating-flush").daemon().factory());
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    @Autowired
+    public RatingAggregateFlushJob(PendingRatingDeltas pendingRatingDeltas,
+                                   BookRatingBatchRepository bookRatingBatchRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   BookCache bookCache,
+                                   ApplicationEventPublisher eventPublisher,
+                                   MeterRegistry meterRegistry) {
+        this.pendingRatingDeltas = pendingRatingDeltas;
+        this.bookRatingBatchRepository = bookRatingBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.bookCache = bookCache;
+        this.eventPublisher = eventPublisher;
+        pendingRatingDeltas.onThreshold(this::requestFlush);
+        pendingRatingDeltas.onFlush(this::flushAndWait);
+        Gauge.builder("books.rating.pending", pendingRatingDeltas, PendingRatingDeltas::size)
+                .description("Books with rating aggregate deltas waiting to be flushed")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${books.rating.write-behind.flush-interval:PT1S}")
+    public void run() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            // The deltas are buffered again and retried with the next flush
+            log.warn("Could not flush rating aggregates", ex);
+        }
+    }
+
+    // Flushes on another thread, the rating request that crossed the threshold does not wait for it
+    public void requestFlush() {
+        if (flushQueued.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    flushQueued.set(false);
+                    run();
+                });
+            } catch (RejectedExecutionException ex) {
+                // Shutting down, the shutdown flush writes the deltas
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    // Flushes on another thread and waits, the caller's transaction may hold a read-only connection.
+    // A failed flush is logged and the caller reads the stored aggregates without the deltas.
+    public void flushAndWait() {
+        try {
+            CompletableFuture.runAsync(this::run, executor).join();
+        } catch (RejectedExecutionException ex) {
+            log.debug("Rating aggregates are not flushed before the query, the flush job is shut down");
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        executor.shutdown();
+        int books = flush();
+        if (books > 0) {
+            log.info("Flushed pending rating aggregates of {} books on shutdown", books);
+        }
+    }
+
+    public int flush() {
+        // Published in the transaction of the flush, so the catalog generation is advanced before it commits
+        Set<Integer> bookIds = pendingRatingDeltas.flush(deltas -> transactionTemplate.executeWithoutResult(status -> {
+            bookRatingBatchRepository.applyRatingDeltas(deltas);
+            deltas.keySet().forEach(bookCache::invalidateAfterCommit);
+            eventPublisher.publishEvent(new BookChangedEvent(Set.copyOf(deltas.keySet())));
+        }));
+        return bookIds.size();
+    }
+}
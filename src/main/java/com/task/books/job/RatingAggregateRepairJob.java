@@ -0,0 +1,28 @@
+package com.task.books.job;
+
+import com.task.books.service.BookRatingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Periodically rebuilds rating_sum/rating_count/average_rating from book_rating,
+// disabled unless books.rating.repair-cron is set to a cron expression
+@Component
+public class RatingAggregateRepairJob {
+    private static final Logger log = LoggerFactory.getLogger(RatingAggregateRepairJob.class);
+
+    private final BookRatingService bookRatingService;
+
+    @Autowired
+    public RatingAggregateRepairJob(BookRatingService bookRatingService) {
+        this.bookRatingService = bookRatingService;
+    }
+
+    @Scheduled(cron = "${books.rating.repair-cron:-}")
+    public void run() {
+        int books = bookRatingService.rebuildRatingAggregates();
+        log.info("Rebuilt rating aggregates of {} books", books);
+    }
+}
@@ -0,0 +1,311 @@
+package com.task.books.leaderboard;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.books.event.BookChangedEvent;
+import com.task.books.event.CatalogChangedEvent;
+import com.task.books.leaderboard.LeaderboardRepository.BookState;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Top rated books overall, per year and per author, kept in memory and updated after every committed change,
+// so a read copies at most "size" entries and never queries the database once its scope is loaded.
+// Every scope holds up to twice "size" entries, so a few books dropping out of the top do not force a reload.
+// Author scopes are loaded on first read and only the recently read ones are kept.
+@Component
+public class BookLeaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(BookLeaderboard.class);
+
+    private final LeaderboardRepository leaderboardRepository;
+    private final int size;
+    private final int capacity;
+
+    // Writers are serialized and read the committed state under the lock, so the last update always wins.
+    // Readers only follow the volatile references to immutable scopes.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile boolean loaded;
+    private volatile Scope global = Scope.EMPTY;
+    private volatile Map<Integer, Scope> byYear = new ConcurrentHashMap<>();
+    private final Cache<Integer, Scope> byAuthor;
+
+    // Year of every book placed into a year scope, used only by writers to find it when its year changes
+    private final Map<Integer, Integer> yearOf = new HashMap<>();
+    // Authors whose cached scope retains the book, used only by writers to find them when the book is deleted
+    private final Map<Integer, Set<Integer>> authorsOf = new HashMap<>();
+
+    @Autowired
+    public BookLeaderboard(LeaderboardRepository leaderboardRepository,
+                           @Value("${books.leaderboard.size:100}") int size,
+                           @Value("${books.leaderboard.author-scopes.maximum-size:10000}") long authorScopes,
+                           @Value("${books.leaderboard.author-scopes.ttl:10m}") Duration authorScopeTtl) {
+        this.leaderboardRepository = leaderboardRepository;
+        this.size = size;
+        this.capacity = size * 2;
+        this.byAuthor = Caffeine.newBuilder()
+                .maximumSize(authorScopes)
+                .expireAfterAccess(authorScopeTtl)
+                .<Integer, Scope>removalListener((authorId, scope, cause) -> {
+                    if (cause.wasEvicted()) {
+                        forgetEvicted(authorId, scope);
+                    }
+                })
+                .build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<LeaderboardEntry> top(int limit) {
+        checkLimit(limit);
+        ensureLoaded();
+        return global.first(limit);
+    }
+
+    public List<LeaderboardEntry> topOfYear(int year, int limit) {
+        checkLimit(limit);
+        ensureLoaded();
+        // After a full load every year with rated books has a scope
+        return byYear.getOrDefault(year, Scope.EMPTY).first(limit);
+    }
+
+    public List<LeaderboardEntry> topOfAuthor(int authorId, int limit) {
+        checkLimit(limit);
+        ensureLoaded();
+        Scope scope = byAuthor.getIfPresent(authorId);
+        if (scope == null) {
+            // Authors are loaded on first read, there are too many of them to load at startup
+            writeLock.lock();
+            try {
+                scope = byAuthor.getIfPresent(authorId);
+                if (scope == null) {
+                    scope = Scope.of(leaderboardRepository.findTopOfAuthor(authorId, capacity + 1), capacity);
+                    // Unknown authors are not cached, any id could be asked for
+                    if (scope.entries().isEmpty() && !leaderboardRepository.authorExists(authorId)) {
+                        throw new EntityNotFoundException("Author not found");
+                    }
+                    byAuthor.put(authorId, scope);
+                    index(authorId, Scope.EMPTY, scope);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return scope.first(limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!loaded || event.bookIds().isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Map<Integer, BookState> states = leaderboardRepository.findStates(event.bookIds());
+            for (Integer bookId : event.bookIds()) {
+                apply(bookId, states.get(bookId));
+            }
+        } catch (RuntimeException ex) {
+            // The next read loads everything again instead of serving a leaderboard that missed this change
+            log.warn("Could not update the leaderboard for books {}, it will be reloaded", event.bookIds(), ex);
+            loaded = false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        rebuild();
+    }
+
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            Map<Integer, Scope> years = new ConcurrentHashMap<>();
+            yearOf.clear();
+            leaderboardRepository.findTopOfEveryYear(capacity + 1).forEach((year, entries) -> {
+                Scope scope = Scope.of(entries, capacity);
+                years.put(year, scope);
+                scope.entries().forEach(entry -> yearOf.put(entry.bookId(), year));
+            });
+            global = Scope.of(leaderboardRepository.findTop(capacity + 1), capacity);
+            byYear = years;
+            byAuthor.invalidateAll();
+            authorsOf.clear();
+            loaded = true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            writeLock.lock();
+            try {
+                if (!loaded) {
+                    rebuild();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    // Moves the book to its current position in every scope it belongs or belonged to, state is null for a deleted book
+    private void apply(Integer bookId, BookState state) {
+        LeaderboardEntry entry = state == null || state.entry().ratingCount() == 0 ? null : state.entry();
+
+        global = update(global, bookId, entry, () -> leaderboardRepository.findTop(capacity + 1));
+
+        Integer previousYear = yearOf.remove(bookId);
+        if (previousYear != null && (entry == null || !previousYear.equals(entry.year()))) {
+            updateYear(previousYear, bookId, null);
+        }
+        if (entry != null) {
+            updateYear(entry.year(), bookId, entry);
+        }
+
+        // The author links of a deleted or relinked book are gone, the index still knows the scopes that list it
+        Set<Integer> authorIds = new HashSet<>(authorsOf.getOrDefault(bookId, Set.of()));
+        if (state != null) {
+            authorIds.addAll(state.authorIds());
+        }
+        for (Integer authorId : authorIds) {
+            Scope scope = byAuthor.getIfPresent(authorId);
+            if (scope != null) {
+                LeaderboardEntry authorEntry = state != null && state.authorIds().contains(authorId) ? entry : null;
+                Scope updated = update(scope, bookId, authorEntry,
+                        () -> leaderboardRepository.findTopOfAuthor(authorId, capacity + 1));
+                byAuthor.put(authorId, updated);
+                index(authorId, scope, updated);
+            }
+        }
+    }
+
+    // Keeps authorsOf in step with the books a cached author scope retains
+    private void index(Integer authorId, Scope previous, Scope current) {
+        for (LeaderboardEntry dropped : previous.entries()) {
+            if (!current.entries().contains(dropped)) {
+                authorsOf.computeIfPresent(dropped.bookId(), (bookId, authors) -> {
+                    authors.remove(authorId);
+                    return authors.isEmpty() ? null : authors;
+                });
+            }
+        }
+        for (LeaderboardEntry retained : current.entries()) {
+            authorsOf.computeIfAbsent(retained.bookId(), bookId -> new HashSet<>()).add(authorId);
+        }
+    }
+
+    // Called after the cache dropped the scope, unless the author was read again in the meantime
+    private void forgetEvicted(Integer authorId, Scope scope) {
+        writeLock.lock();
+        try {
+            if (byAuthor.getIfPresent(authorId) == null) {
+                index(authorId, scope, Scope.EMPTY);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void updateYear(Integer year, Integer bookId, LeaderboardEntry entry) {
+        Scope scope = byYear.get(year);
+        if (scope == null) {
+            if (entry == null) {
+                return;
+            }
+            // No rated book of this year existed, so the new scope is complete
+            scope = Scope.EMPTY;
+        }
+        Scope updated = update(scope, bookId, entry, () -> leaderboardRepository.findTopOfYear(year, capacity + 1));
+        if (updated.entries().isEmpty()) {
+            byYear.remove(year);
+        } else {
+            byYear.put(year, updated);
+            updated.entries().forEach(retained -> yearOf.putIfAbsent(retained.bookId(), year));
+        }
+    }
+
+    private Scope update(Scope scope, Integer bookId, LeaderboardEntry entry, Loader loader) {
+        Scope updated = scope.with(bookId, entry, capacity);
+        // A partial scope that shrank below the served size is refilled from the stored aggregates
+        if (!updated.exhaustive() && updated.entries().size() < size) {
+            return Scope.of(loader.load(), capacity);
+        }
+        return updated;
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > size) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + size);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Loader {
+        List<LeaderboardEntry> load();
+    }
+
+    // Best entries of one scope in ranking order. Unless exhaustive, the scope may rank more books than it retains,
+    // but the retained ones are always exactly the best ones.
+    record Scope(List<LeaderboardEntry> entries, boolean exhaustive) {
+
+        static final Scope EMPTY = new Scope(List.of(), true);
+
+        // Loaded with one row more than the capacity, which tells whether the scope has more books
+        static Scope of(List<LeaderboardEntry> loaded, int capacity) {
+            if (loaded.size() <= capacity) {
+                return new Scope(List.copyOf(loaded), true);
+            }
+            return new Scope(List.copyOf(loaded.subList(0, capacity)), false);
+        }
+
+        List<LeaderboardEntry> first(int limit) {
+            return entries.size() <= limit ? entries : List.copyOf(entries.subList(0, limit));
+        }
+
+        // Removes the book and inserts its new entry, unless it now ranks below books this scope no longer retains
+        Scope with(Integer bookId, LeaderboardEntry entry, int capacity) {
+            List<LeaderboardEntry> updated = new ArrayList<>(entries.size() + 1);
+            for (LeaderboardEntry retained : entries) {
+                if (!retained.bookId().equals(bookId)) {
+                    updated.add(retained);
+                }
+            }
+            boolean complete = exhaustive;
+            if (entry != null && (complete || (!updated.isEmpty()
+                    && LeaderboardEntry.RANKING.compare(entry, updated.get(updated.size() - 1)) < 0))) {
+                int position = Collections.binarySearch(updated, entry, LeaderboardEntry.RANKING);
+                updated.add(position < 0 ? -position - 1 : position, entry);
+                if (updated.size() > capacity) {
+                    updated.remove(capacity);
+                    complete = false;
+                }
+            }
+            if (complete == exhaustive && updated.equals(entries)) {
+                return this;
+            }
+            return new Scope(List.copyOf(updated), complete);
+        }
+    }
+}
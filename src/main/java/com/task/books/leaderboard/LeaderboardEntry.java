@@ -0,0 +1,12 @@
+package com.task.books.leaderboard;
+
+import java.util.Comparator;
+
+public record LeaderboardEntry(Integer bookId, String title, Integer year, Double avgRating, Long ratingCount) {
+
+    // Best average first, more ratings break ties, then the older book
+    static final Comparator<LeaderboardEntry> RANKING = Comparator
+            .comparing(LeaderboardEntry::avgRating, Comparator.reverseOrder())
+            .thenComparing(LeaderboardEntry::ratingCount, Comparator.reverseOrder())
+            .thenComparing(LeaderboardEntry::bookId);
+}
@@ -0,0 +1,102 @@
+package com.task.books.leaderboard;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+// Reads the stored rating aggregates of books, book_rating is never touched
+@Repository
+class LeaderboardRepository {
+
+    private static final String RANKED_BY = "b.average_rating DESC, b.rating_count DESC, b.book_id";
+
+    private static final RowMapper<LeaderboardEntry> ENTRY = (resultSet, row) -> new LeaderboardEntry(
+            resultSet.getInt("book_id"),
+            resultSet.getString("title"),
+            resultSet.getInt("published_year"),
+            resultSet.getDouble("average_rating"),
+            resultSet.getLong("rating_count"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    LeaderboardRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    List<LeaderboardEntry> findTop(int limit) {
+        return jdbcTemplate.query("""
+                        SELECT b.book_id, b.title, b.published_year, b.average_rating, b.rating_count FROM books b
+                        WHERE b.rating_count > 0 ORDER BY %s LIMIT :limit
+                        """.formatted(RANKED_BY),
+                Map.of("limit", limit), ENTRY);
+    }
+
+    List<LeaderboardEntry> findTopOfYear(int year, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT b.book_id, b.title, b.published_year, b.average_rating, b.rating_count FROM books b
+                        WHERE b.rating_count > 0 AND b.published_year = :year ORDER BY %s LIMIT :limit
+                        """.formatted(RANKED_BY),
+                Map.of("year", year, "limit", limit), ENTRY);
+    }
+
+    List<LeaderboardEntry> findTopOfAuthor(int authorId, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT b.book_id, b.title, b.published_year, b.average_rating, b.rating_count
+                        FROM books b JOIN book_author ba ON ba.book_id = b.book_id
+                        WHERE b.rating_count > 0 AND ba.author_id = :authorId ORDER BY %s LIMIT :limit
+                        """.formatted(RANKED_BY),
+                Map.of("authorId", authorId, "limit", limit), ENTRY);
+    }
+
+    boolean authorExists(int authorId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM authors WHERE author_id = :authorId)",
+                Map.of("authorId", authorId), Boolean.class));
+    }
+
+    // The best books of every year in one statement, in ranking order within each year
+    Map<Integer, List<LeaderboardEntry>> findTopOfEveryYear(int limit) {
+        Map<Integer, List<LeaderboardEntry>> years = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT book_id, title, published_year, average_rating, rating_count FROM (
+                            SELECT b.book_id, b.title, b.published_year, b.average_rating, b.rating_count,
+                                   ROW_NUMBER() OVER (PARTITION BY b.published_year ORDER BY %s) AS position
+                            FROM books b WHERE b.rating_count > 0) ranked
+                        WHERE position <= :limit
+                        ORDER BY published_year, position
+                        """.formatted(RANKED_BY),
+                Map.of("limit", limit),
+                resultSet -> {
+                    LeaderboardEntry entry = ENTRY.mapRow(resultSet, 0);
+                    years.computeIfAbsent(entry.year(), year -> new ArrayList<>()).add(entry);
+                });
+        return years;
+    }
+
+    // Current state of the given books with their author ids, deleted books are missing from the result
+    Map<Integer, BookState> findStates(Collection<Integer> bookIds) {
+        Map<Integer, BookState> states = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT b.book_id, b.title, b.published_year, b.average_rating, b.rating_count, ba.author_id
+                        FROM books b LEFT JOIN book_author ba ON ba.book_id = b.book_id
+                        WHERE b.book_id IN (:bookIds)
+                        """,
+                Map.of("bookIds", bookIds),
+                resultSet -> {
+                    LeaderboardEntry entry = ENTRY.mapRow(resultSet, 0);
+                    BookState state = states.computeIfAbsent(entry.bookId(), id -> new BookState(entry, new HashSet<>()));
+                    int authorId = resultSet.getInt("author_id");
+                    if (!resultSet.wasNull()) {
+                        state.authorIds().add(authorId);
+                    }
+                });
+        return states;
+    }
+
+    record BookState(LeaderboardEntry entry, Set<Integer> authorIds) {
+    }
+}
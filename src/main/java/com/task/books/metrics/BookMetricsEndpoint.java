@@ -0,0 +1,112 @@
+package com.task.books.metrics;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.search.Search;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// JSON summary of the hot-path metrics at /actuator/bookmetrics, the full set is scraped from /actuator/prometheus
+@Component
+@Endpoint(id = "bookmetrics")
+public class BookMetricsEndpoint {
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public BookMetricsEndpoint(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("endpoints", endpoints());
+        summary.put("service", Map.of(
+                "filterBooks", timer(meterRegistry.find("books.filter").timer()),
+                "rateBook", timer(meterRegistry.find("books.rate").timer())));
+        summary.put("hibernate", hibernate());
+        summary.put("connectionPool", connectionPools());
+        summary.put("bookCache", Map.of(
+                "hits", total(meterRegistry.find("cache.gets").tag("cache", "books").tag("result", "hit")),
+                "misses", total(meterRegistry.find("cache.gets").tag("cache", "books").tag("result", "miss"))));
+        return summary;
+    }
+
+    // Latency per endpoint, keyed by method and URI template
+    private Map<String, Object> endpoints() {
+        Map<String, Object> endpoints = new TreeMap<>();
+        for (Timer timer : meterRegistry.find("http.server.requests").timers()) {
+            String uri = timer.getId().getTag("uri");
+            if (uri == null || !uri.startsWith("/api/")) {
+                continue;
+            }
+            String key = timer.getId().getTag("method") + " " + uri + " " + timer.getId().getTag("status");
+            endpoints.put(key, timer(timer));
+        }
+        return endpoints;
+    }
+
+    private Map<String, Object> hibernate() {
+        Map<String, Object> hibernate = new LinkedHashMap<>();
+        hibernate.put("queries", total(meterRegistry.find("hibernate.query.executions")));
+        hibernate.put("statements", total(meterRegistry.find("hibernate.statements").tag("status", "prepared")));
+        hibernate.put("entityLoads", total(meterRegistry.find("hibernate.entities.loads")));
+        hibernate.put("collectionLoads", total(meterRegistry.find("hibernate.collections").tag("action", "load")));
+        hibernate.put("secondLevelCacheHits", total(meterRegistry.find("hibernate.second.level.cache.requests").tag("result", "hit")));
+        hibernate.put("secondLevelCacheMisses", total(meterRegistry.find("hibernate.second.level.cache.requests").tag("result", "miss")));
+        return hibernate;
+    }
+
+    // Keyed by pool name, the primary and the replica pool are never mixed
+    private Map<String, Object> connectionPools() {
+        Map<String, Object> pools = new TreeMap<>();
+        for (Timer acquire : meterRegistry.find("hikaricp.connections.acquire").timers()) {
+            String name = acquire.getId().getTag("pool");
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("acquire", timer(acquire));
+            pool.put("active", total(meterRegistry.find("hikaricp.connections.active").tag("pool", name)));
+            pool.put("pending", total(meterRegistry.find("hikaricp.connections.pending").tag("pool", name)));
+            pools.put(name, pool);
+        }
+        return pools;
+    }
+
+    private static Map<String, Object> timer(Timer timer) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (timer == null) {
+            values.put("count", 0L);
+            return values;
+        }
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        values.put("count", snapshot.count());
+        values.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        values.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            values.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return values;
+    }
+
+    // Sum of the counted or gauged value over every meter matching the search
+    private static double total(Search search) {
+        double total = 0;
+        for (Meter meter : search.meters()) {
+            for (Measurement measurement : meter.measure()) {
+                Statistic statistic = measurement.getStatistic();
+                if (statistic == Statistic.COUNT || statistic == Statistic.VALUE) {
+                    total += measurement.getValue();
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -1,23 +1,34 @@
 package com.task.books.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.task.books.config.SecondLevelCacheConfiguration;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Set;
 
 @Setter
 @Getter
+// Batch loaded, so a book author list served from the cache resolves evicted authors in one statement
 @Entity
+@Cacheable
+@BatchSize(size = 1000)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.AUTHORS)
 @Table(name = "authors")
 public class Author {
+    public static final int MAX_NAME_LENGTH = 255;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "author_id")
     private Integer authorId;
 
-    @Column(name = "name", nullable = false)
+    // Unique, so imports can upsert authors by name
+    @Column(name = "name", nullable = false, unique = true, length = MAX_NAME_LENGTH)
     private String name;
 
     @ManyToMany(mappedBy = "authors")
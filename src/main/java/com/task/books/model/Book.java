@@ -1,8 +1,15 @@
 package com.task.books.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.task.books.config.SecondLevelCacheConfiguration;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.Set;
 
@@ -11,21 +18,47 @@ import java.util.Set;
 @Entity
 @Table(name = "books")
 public class Book {
+    public static final int MAX_TITLE_LENGTH = 255;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "book_id")
     private Integer bookId;
 
-    @Column(name = "title", nullable = false)
+    @Column(name = "title", nullable = false, length = MAX_TITLE_LENGTH)
     private String title;
 
     @Column(name = "published_year", nullable = false)
     private Integer year;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @Column(name = "average_rating", columnDefinition = "DOUBLE PRECISION DEFAULT 0.0", nullable = false)
     private Double avgRating = 0.0;
 
+    // Running aggregates of book_rating, avgRating is derived from them. Only ratings change them, never the client
+    // Books rated before the aggregates existed are backfilled by V7__upgrade_baseline_books.sql
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("0")
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount = 0L;
+
+    // Incremented by every change of the book or its ratings, it is the ETag of the book
+    @Version
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Batch fetching loads the authors of a whole page of books in one statement instead of one per book,
+    // the second-level cache keeps the author ids of each book, so cached books need no statement at all
     @ManyToMany
+    @BatchSize(size = 1000)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.BOOK_AUTHORS)
     @JoinTable(
             name = "book_author",
             joinColumns = @JoinColumn(name = "book_id"),
@@ -34,6 +67,7 @@ public class Book {
 
     // Many-to-Many relationship with Client through BookRating
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL)
+    @BatchSize(size = 1000)
     private Set<BookRating> ratings;
 
     public Book(String title, Integer year, Double avgRating) {
@@ -1,15 +1,20 @@
 package com.task.books.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.task.books.config.SecondLevelCacheConfiguration;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Set;
 
 @Setter
 @Getter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.CLIENTS)
 @Table(name = "clients")
 public class Client {
     @Id
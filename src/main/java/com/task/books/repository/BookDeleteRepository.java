@@ -0,0 +1,42 @@
+package com.task.books.repository;
+
+import com.task.books.model.Book;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Deletes books with one statement per table instead of loading and removing every rating entity.
+// Written past Hibernate, so only the cached author lists of the deleted books are evicted, not whole regions.
+@Repository
+public class BookDeleteRepository {
+
+    private static final String BOOK_AUTHORS_ROLE = Book.class.getName() + ".authors";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Cache secondLevelCache;
+
+    @Autowired
+    public BookDeleteRepository(NamedParameterJdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    // Rows referencing the books go first, returns the number of deleted books
+    public int deleteBooks(Collection<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+        Map<String, Collection<Integer>> parameters = Map.of("bookIds", bookIds);
+        jdbcTemplate.update("DELETE FROM book_rating WHERE book_id IN (:bookIds)", parameters);
+        jdbcTemplate.update("DELETE FROM book_author WHERE book_id IN (:bookIds)", parameters);
+        int deleted = jdbcTemplate.update("DELETE FROM books WHERE book_id IN (:bookIds)", parameters);
+        bookIds.forEach(bookId -> secondLevelCache.evictCollectionData(BOOK_AUTHORS_ROLE, bookId));
+        return deleted;
+    }
+}
@@ -0,0 +1,82 @@
+package com.task.books.repository;
+
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import com.task.books.response.BookFacets.AuthorFacet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Counts of filtered books computed with one GROUP BY statement per facet, no book row leaves the database
+@Repository
+public class BookFacetRepository {
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public BookFacetRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public SortedMap<Integer, Long> countByYear(Specification<Book> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> root = query.from(Book.class);
+        Expression<Integer> year = root.get("year");
+        query.multiselect(year, cb.count(root)).groupBy(year);
+        where(query, root, cb, specification);
+
+        SortedMap<Integer, Long> counts = new TreeMap<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            counts.put(row.get(0, Integer.class), row.get(1, Long.class));
+        }
+        return counts;
+    }
+
+    // The stored average is floored to whole stars, so each bucket is served by the same column the rating filter uses
+    public SortedMap<Integer, Long> countByRatingBucket(Specification<Book> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> root = query.from(Book.class);
+        Expression<Integer> bucket = cb.function("floor", Integer.class, root.get("avgRating"));
+        query.multiselect(bucket, cb.count(root)).groupBy(bucket);
+        where(query, root, cb, specification);
+
+        SortedMap<Integer, Long> counts = new TreeMap<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            counts.put(row.get(0, Number.class).intValue(), row.get(1, Long.class));
+        }
+        return counts;
+    }
+
+    // The authors with the most matching books, ties ordered by name
+    public List<AuthorFacet> countByAuthor(Specification<Book> specification, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> root = query.from(Book.class);
+        Join<Book, Author> author = root.join("authors");
+        Expression<Long> count = cb.count(root);
+        query.multiselect(author.get("authorId"), author.get("name"), count)
+                .groupBy(author.get("authorId"), author.get("name"))
+                .orderBy(cb.desc(count), cb.asc(author.get("name")), cb.asc(author.get("authorId")));
+        where(query, root, cb, specification);
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList().stream()
+                .map(row -> new AuthorFacet(row.get(0, Integer.class), row.get(1, String.class), row.get(2, Long.class)))
+                .toList();
+    }
+
+    private static void where(CriteriaQuery<Tuple> query, Root<Book> root, CriteriaBuilder cb, Specification<Book> specification) {
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.task.books.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+// Batched JDBC writes for catalog imports and generated data sets, each method is one statement or one JDBC batch
+@Repository
+public class BookImportRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookImportRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Existing authors by exact name, author names are unique
+    public Map<String, Integer> findAuthorIds(Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.query("SELECT author_id, name FROM authors WHERE name IN (:names) ORDER BY author_id",
+                Map.of("names", names),
+                resultSet -> {
+                    ids.putIfAbsent(resultSet.getString("name"), resultSet.getInt("author_id"));
+                });
+        return ids;
+    }
+
+    // Inserts the names no author has yet, names inserted concurrently by another writer are skipped.
+    // Sorted, so concurrent writers wait for each other's names in the same order. Returns the number of new authors.
+    public int insertMissingAuthors(Collection<String> names) {
+        List<Object[]> rows = new TreeSet<>(names).stream().map(name -> new Object[]{name}).toList();
+        int[] counts = jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "INSERT INTO authors (name) VALUES (?) ON CONFLICT DO NOTHING", rows);
+        int inserted = 0;
+        for (int count : counts) {
+            inserted += Math.max(count, 0);
+        }
+        return inserted;
+    }
+
+    // Returns the generated ids in the order of the given names, which must not exist yet
+    public List<Integer> insertAuthors(List<String> names) {
+        return insertReturningIds("INSERT INTO authors (name) VALUES (:name)", "author_id",
+                names.stream().map(name -> new MapSqlParameterSource("name", name)).toList());
+    }
+
+    // Returns the generated ids in the order of the given names
+    public List<Integer> insertClients(List<String> names) {
+        return insertReturningIds("INSERT INTO clients (name) VALUES (:name)", "client_id",
+                names.stream().map(name -> new MapSqlParameterSource("name", name)).toList());
+    }
+
+    // Returns the generated ids in the order of the given books, rating aggregates start at zero
+    public List<Integer> insertBooks(List<NewBook> books) {
+        return insertReturningIds("""
+                        INSERT INTO books (title, published_year, average_rating, rating_sum, rating_count, version)
+                        VALUES (:title, :year, 0.0, 0, 0, 0)
+                        """,
+                "book_id",
+                books.stream().map(book -> new MapSqlParameterSource()
+                        .addValue("title", book.title())
+                        .addValue("year", book.year())).toList());
+    }
+
+    // Each row is {book_id, author_id}
+    public void insertBookAuthors(List<int[]> links) {
+        List<Object[]> rows = links.stream().map(link -> new Object[]{link[0], link[1]}).toList();
+        jdbcTemplate.getJdbcTemplate().batchUpdate("INSERT INTO book_author (book_id, author_id) VALUES (?, ?)", rows);
+    }
+
+    // Each row is {book_id, client_id, rating}, pairs that already exist are skipped,
+    // rating aggregates are not touched and have to be rebuilt afterwards
+    public int insertRatings(List<int[]> ratings) {
+        List<Object[]> rows = ratings.stream().map(rating -> new Object[]{rating[0], rating[1], rating[2]}).toList();
+        int[] counts = jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "INSERT INTO book_rating (book_id, client_id, rating) VALUES (?, ?, ?) ON CONFLICT DO NOTHING", rows);
+        int inserted = 0;
+        for (int count : counts) {
+            inserted += Math.max(count, 0);
+        }
+        return inserted;
+    }
+
+    private List<Integer> insertReturningIds(String sql, String idColumn, List<MapSqlParameterSource> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(sql, rows.toArray(SqlParameterSource[]::new), keyHolder, new String[]{idColumn});
+        List<Integer> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).intValue());
+        }
+        return ids;
+    }
+
+    public record NewBook(String title, int year) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.task.books.repository;
+
+import com.task.books.model.BookRatingKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+// Set-based JDBC statements for rating imports, each method is one statement or one JDBC batch.
+// Written past Hibernate, so the aggregate updates do not evict the second-level cache regions of books.
+@Repository
+public class BookRatingBatchRepository {
+
+    // Relative update evaluated under the row lock, so concurrent ratings of the same book never lose a delta
+    private static final String APPLY_RATING_DELTA = """
+            UPDATE books SET
+                rating_sum = rating_sum + ?,
+                rating_count = rating_count + ?,
+                average_rating = CASE WHEN rating_count + ? > 0
+                    THEN (rating_sum + ?) * 1.0 / (rating_count + ?) ELSE 0.0 END,
+                version = version + 1
+            WHERE book_id = ?
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookRatingBatchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Locks and returns the current rating of every given pair that already exists
+    public Map<BookRatingKey, Integer> findRatingsForUpdate(Collection<BookRatingKey> keys) {
+        Map<BookRatingKey, Integer> ratings = new HashMap<>();
+        if (keys.isEmpty()) {
+            return ratings;
+        }
+        List<Object[]> pairs = keys.stream()
+                .map(key -> new Object[]{key.getBookId(), key.getClientId()})
+                .toList();
+        jdbcTemplate.query("""
+                        SELECT book_id, client_id, rating FROM book_rating
+                        WHERE (book_id, client_id) IN (:pairs)
+                        ORDER BY book_id, client_id
+                        FOR UPDATE
+                        """,
+                Map.of("pairs", pairs),
+                resultSet -> {
+                    ratings.put(new BookRatingKey(resultSet.getInt("book_id"), resultSet.getInt("client_id")), resultSet.getInt("rating"));
+                });
+        return ratings;
+    }
+
+    // Returns the pairs that were not inserted because a concurrent writer inserted them first
+    public Set<BookRatingKey> insertIfAbsent(Map<BookRatingKey, Integer> ratings) {
+        List<BookRatingKey> keys = new ArrayList<>(ratings.keySet());
+        List<Object[]> rows = keys.stream()
+                .map(key -> new Object[]{key.getBookId(), key.getClientId(), ratings.get(key)})
+                .toList();
+        int[] counts = jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "INSERT INTO book_rating (book_id, client_id, rating) VALUES (?, ?, ?) ON CONFLICT DO NOTHING", rows);
+        Set<BookRatingKey> conflicts = new HashSet<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                conflicts.add(keys.get(i));
+            }
+        }
+        return conflicts;
+    }
+
+    public void updateRatings(Map<BookRatingKey, Integer> ratings) {
+        List<Object[]> rows = new ArrayList<>(ratings.size());
+        ratings.forEach((key, rating) -> rows.add(new Object[]{rating, key.getBookId(), key.getClientId()}));
+        jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "UPDATE book_rating SET rating = ? WHERE book_id = ? AND client_id = ?", rows);
+    }
+
+    public void applyRatingDelta(Integer bookId, RatingDelta delta) {
+        jdbcTemplate.getJdbcTemplate().update(APPLY_RATING_DELTA, deltaRow(bookId, delta));
+    }
+
+    // Applies the summed delta of every affected book in one batch, in book id order to avoid deadlocks
+    public void applyRatingDeltas(SortedMap<Integer, RatingDelta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((bookId, delta) -> rows.add(deltaRow(bookId, delta)));
+        jdbcTemplate.getJdbcTemplate().batchUpdate(APPLY_RATING_DELTA, rows);
+    }
+
+    private static Object[] deltaRow(Integer bookId, RatingDelta delta) {
+        return new Object[]{delta.sum(), delta.count(), delta.count(), delta.sum(), delta.count(), bookId};
+    }
+
+    public record RatingDelta(long sum, long count) {
+
+        public RatingDelta plus(RatingDelta other) {
+            return new RatingDelta(sum + other.sum, count + other.count);
+        }
+    }
+}
@@ -2,10 +2,32 @@ package com.task.books.repository;
 
 import com.task.books.model.BookRating;
 import com.task.books.model.BookRatingKey;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+// The native writes declare book_rating as the only table they touch, otherwise Hibernate
+// would evict every second-level cache region after each of them
 @Repository
 public interface BookRatingRepository extends JpaRepository<BookRating, BookRatingKey> {
 
+    // Atomic insert, returns 0 instead of failing when the client already rated the book
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_rating"))
+    @Query(value = "INSERT INTO book_rating (book_id, client_id, rating) VALUES (:bookId, :clientId, :rating) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("bookId") Integer bookId, @Param("clientId") Integer clientId, @Param("rating") int rating);
+
+    // Locks the existing rating row, so concurrent re-rates of the same client are applied one after another
+    @Query(value = "SELECT rating FROM book_rating WHERE book_id = :bookId AND client_id = :clientId FOR UPDATE", nativeQuery = true)
+    Integer findRatingForUpdate(@Param("bookId") Integer bookId, @Param("clientId") Integer clientId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_rating"))
+    @Query(value = "UPDATE book_rating SET rating = :rating WHERE book_id = :bookId AND client_id = :clientId", nativeQuery = true)
+    int updateRating(@Param("bookId") Integer bookId, @Param("clientId") Integer clientId, @Param("rating") int rating);
 }
@@ -1,10 +1,42 @@
 package com.task.books.repository;
 
 import com.task.books.model.Book;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
 @Repository
-public interface BookRepository extends JpaRepository<Book, Integer> {
+public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book> {
+
+    // Set-based existence check, returns the subset of ids that exist
+    @Query("SELECT b.bookId FROM Book b WHERE b.bookId IN :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    // Loads the book together with everything it serializes, so it can be used outside the persistence context
+    @EntityGraph(attributePaths = {"authors", "ratings", "ratings.client"})
+    Optional<Book> findWithAssociationsByBookId(Integer bookId);
+
+    // Version of the book without loading it, null when it does not exist
+    @Query("SELECT b.version FROM Book b WHERE b.bookId = :id")
+    Optional<Long> findVersionById(@Param("id") Integer id);
 
+    // Recomputes the stored rating aggregates of every book from book_rating.
+    // Bulk updates bypass optimistic locking, so the version is incremented explicitly.
+    @Modifying
+    @Query("""
+            UPDATE Book b SET
+                b.ratingSum = COALESCE((SELECT SUM(r.rating) FROM BookRating r WHERE r.book = b), 0),
+                b.ratingCount = (SELECT COUNT(r) FROM BookRating r WHERE r.book = b),
+                b.avgRating = COALESCE((SELECT AVG(r.rating) FROM BookRating r WHERE r.book = b), 0.0),
+                b.version = b.version + 1
+            """)
+    int rebuildRatingAggregates();
 }
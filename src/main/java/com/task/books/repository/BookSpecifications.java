@@ -0,0 +1,84 @@
+package com.task.books.repository;
+
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+// Translates the optional filter parameters of /api/books/filter into SQL predicates
+public final class BookSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private BookSpecifications() {
+
+    }
+
+    // Combines every non-empty filter, a null argument means "no restriction"
+    public static Specification<Book> matching(String title, Integer year, String author, Double rating) {
+        Specification<Book> specification = Specification.where(null);
+        if (title != null && !title.isEmpty()) {
+            specification = specification.and(titleContains(title));
+        }
+        if (year != null) {
+            specification = specification.and(publishedIn(year));
+        }
+        if (author != null && !author.isEmpty()) {
+            specification = specification.and(authorNameContains(author));
+        }
+        if (rating != null) {
+            specification = specification.and(averageRatingAtLeast(rating));
+        }
+        return specification;
+    }
+
+    // lower(title) LIKE matches the trigram index of the V3 migration, so no sequential scan is needed
+    public static Specification<Book> titleContains(String title) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("title")), containsPattern(title), LIKE_ESCAPE);
+    }
+
+    public static Specification<Book> publishedIn(Integer year) {
+        return (root, query, cb) -> cb.equal(root.get("year"), year);
+    }
+
+    // Keyset seek on the primary key index, used for cursor pagination
+    public static Specification<Book> idGreaterThan(Integer bookId) {
+        return (root, query, cb) -> cb.greaterThan(root.get("bookId"), bookId);
+    }
+
+    // Loads the books an in-memory scan selected, callers keep the list within MAX_PAGE_SIZE ids
+    public static Specification<Book> idIn(Collection<Integer> bookIds) {
+        return (root, query, cb) -> root.get("bookId").in(bookIds);
+    }
+
+    // EXISTS instead of a join, so a book with several matching authors is returned once,
+    // lower(name) LIKE is served by the trigram index on authors
+    public static Specification<Book> authorNameContains(String author) {
+        return (root, query, cb) -> {
+            Subquery<Integer> subquery = query.subquery(Integer.class);
+            Root<Book> book = subquery.correlate(root);
+            Join<Book, Author> authors = book.join("authors");
+            subquery.select(cb.literal(1))
+                    .where(cb.like(cb.lower(authors.get("name")), containsPattern(author), LIKE_ESCAPE));
+            return cb.exists(subquery);
+        };
+    }
+
+    // Uses the stored average, which is kept in step with book_rating, a book without ratings counts as 0
+    public static Specification<Book> averageRatingAtLeast(Double rating) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("avgRating"), rating);
+    }
+
+    // Shared with ReactiveBookRepository so both read paths match the same titles and names
+    static String containsPattern(String value) {
+        String escaped = value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
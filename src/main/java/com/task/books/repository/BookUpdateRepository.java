@@ -0,0 +1,31 @@
+package com.task.books.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Updates the editable columns of a book in place instead of loading and saving the whole entity.
+// A save would write back the rating aggregates it loaded, losing the ratings committed in between.
+@Repository
+public class BookUpdateRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookUpdateRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // The version is incremented like every other change of the book, returns the number of updated books
+    public int updateDetails(Integer bookId, String title, Integer year) {
+        return jdbcTemplate.update("""
+                        UPDATE books SET title = :title, published_year = :year, version = version + 1
+                        WHERE book_id = :bookId
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("bookId", bookId)
+                        .addValue("title", title)
+                        .addValue("year", year));
+    }
+}
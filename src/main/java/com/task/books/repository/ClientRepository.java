@@ -2,9 +2,17 @@ package com.task.books.repository;
 
 import com.task.books.model.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Set;
+
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Integer> {
 
+    // Set-based existence check, returns the subset of ids that exist
+    @Query("SELECT c.clientId FROM Client c WHERE c.clientId IN :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,123 @@
+package com.task.books.repository;
+
+import com.task.books.model.*;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+// Non-blocking reads over R2DBC, returning the same book graphs as the JPA repository
+@Repository
+public class ReactiveBookRepository {
+
+    private static final String SELECT_BOOKS = """
+            SELECT b.book_id, b.title, b.published_year, b.average_rating, b.rating_sum, b.rating_count
+            FROM books b
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveBookRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Book> findById(Integer bookId) {
+        return databaseClient.sql(SELECT_BOOKS + "WHERE b.book_id = :bookId")
+                .bind("bookId", bookId)
+                .map(ReactiveBookRepository::book)
+                .one()
+                .flatMap(book -> withAssociations(List.of(book)).next());
+    }
+
+    // Same predicates as BookSpecifications.matching, books are emitted in id order and their
+    // associations are loaded per chunk, so the database is read only as fast as the subscriber consumes
+    public Flux<Book> findMatching(String title, Integer year, String author, Double rating, int chunkSize) {
+        StringBuilder sql = new StringBuilder(SELECT_BOOKS).append("WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        if (title != null && !title.isEmpty()) {
+            sql.append(" AND lower(b.title) LIKE :title ESCAPE '\\'");
+            parameters.put("title", BookSpecifications.containsPattern(title));
+        }
+        if (year != null) {
+            sql.append(" AND b.published_year = :year");
+            parameters.put("year", year);
+        }
+        if (author != null && !author.isEmpty()) {
+            sql.append("""
+                     AND EXISTS (SELECT 1 FROM book_author ba JOIN authors a ON a.author_id = ba.author_id
+                    WHERE ba.book_id = b.book_id AND lower(a.name) LIKE :author ESCAPE '\\')""");
+            parameters.put("author", BookSpecifications.containsPattern(author));
+        }
+        if (rating != null) {
+            sql.append(" AND b.average_rating >= :rating");
+            parameters.put("rating", rating);
+        }
+        sql.append(" ORDER BY b.book_id");
+
+        return databaseClient.sql(sql.toString())
+                .bindValues(parameters)
+                .map(ReactiveBookRepository::book)
+                .all()
+                .buffer(chunkSize)
+                .concatMap(this::withAssociations);
+    }
+
+    // Two statements per chunk, authors and ratings with their clients
+    private Flux<Book> withAssociations(List<Book> books) {
+        Map<Integer, Book> booksById = new LinkedHashMap<>();
+        for (Book book : books) {
+            book.setAuthors(new HashSet<>());
+            book.setRatings(new HashSet<>());
+            booksById.put(book.getBookId(), book);
+        }
+
+        Mono<Void> authors = databaseClient.sql("""
+                        SELECT ba.book_id, a.author_id, a.name
+                        FROM book_author ba JOIN authors a ON a.author_id = ba.author_id
+                        WHERE ba.book_id IN (:bookIds)
+                        """)
+                .bind("bookIds", booksById.keySet())
+                .map(row -> {
+                    Author author = new Author(row.get("name", String.class));
+                    author.setAuthorId(row.get("author_id", Integer.class));
+                    booksById.get(row.get("book_id", Integer.class)).getAuthors().add(author);
+                    return author;
+                })
+                .all()
+                .then();
+
+        Mono<Void> ratings = databaseClient.sql("""
+                        SELECT r.book_id, r.client_id, r.rating, c.name
+                        FROM book_rating r JOIN clients c ON c.client_id = r.client_id
+                        WHERE r.book_id IN (:bookIds)
+                        """)
+                .bind("bookIds", booksById.keySet())
+                .map(row -> {
+                    Book book = booksById.get(row.get("book_id", Integer.class));
+                    Client client = new Client(row.get("name", String.class));
+                    client.setClientId(row.get("client_id", Integer.class));
+                    BookRating bookRating = new BookRating(new BookRatingKey(book.getBookId(), client.getClientId()),
+                            book, client, row.get("rating", Integer.class));
+                    book.getRatings().add(bookRating);
+                    return bookRating;
+                })
+                .all()
+                .then();
+
+        return authors.then(ratings).thenMany(Flux.fromIterable(booksById.values()));
+    }
+
+    private static Book book(Readable row) {
+        Book book = new Book(row.get("title", String.class), row.get("published_year", Integer.class),
+                row.get("average_rating", Double.class));
+        book.setBookId(row.get("book_id", Integer.class));
+        book.setRatingSum(row.get("rating_sum", Long.class));
+        book.setRatingCount(row.get("rating_count", Long.class));
+        return book;
+    }
+}
@@ -0,0 +1,14 @@
+package com.task.books.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchRateRequest {
+    Integer bookId;
+    Integer clientId;
+    Integer rating;
+}
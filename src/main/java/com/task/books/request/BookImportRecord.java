@@ -0,0 +1,19 @@
+package com.task.books.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One book of a catalog import, a line of NDJSON or a CSV row with the authors separated by ';'
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BookImportRecord {
+    String title;
+    Integer year;
+    List<String> authors;
+}
@@ -0,0 +1,14 @@
+package com.task.books.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BookBatchDeleteResponse {
+    int deleted;
+    // Requested ids without a book, in the order they were requested
+    List<Integer> missingIds;
+}
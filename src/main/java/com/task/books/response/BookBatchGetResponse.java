@@ -0,0 +1,16 @@
+package com.task.books.response;
+
+import com.task.books.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BookBatchGetResponse {
+    // In the order of the requested ids, an id requested twice is returned once
+    List<Book> books;
+    // Requested ids without a book, in the order they were requested
+    List<Integer> missingIds;
+}
@@ -0,0 +1,23 @@
+package com.task.books.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BookBatchRateResponse {
+    int accepted;
+    List<Failure> failures;
+
+    // Position of the rejected item in the request body and why it was rejected
+    @Data
+    @AllArgsConstructor
+    public static class Failure {
+        int index;
+        Integer bookId;
+        Integer clientId;
+        String message;
+    }
+}
@@ -0,0 +1,21 @@
+package com.task.books.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.SortedMap;
+
+@Data
+@AllArgsConstructor
+public class BookFacets {
+    // Number of matching books per published year
+    SortedMap<Integer, Long> years;
+    // Authors with the most matching books, a book with several authors counts for each of them
+    List<AuthorFacet> authors;
+    // Number of matching books per whole star of their average rating, unrated books count as 0
+    SortedMap<Integer, Long> ratings;
+
+    public record AuthorFacet(Integer authorId, String name, long count) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.task.books.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BookImportResponse {
+    long imported;
+    long rejected;
+    long authorsCreated;
+    long elapsedMillis;
+    double booksPerSecond;
+    // Only the first rejections are listed, the count covers all of them
+    List<Rejection> rejections;
+
+    // Position of the record in the input, starting at 1, and why it was skipped
+    @Data
+    @AllArgsConstructor
+    public static class Rejection {
+        long record;
+        String message;
+    }
+}
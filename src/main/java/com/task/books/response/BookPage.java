@@ -0,0 +1,15 @@
+package com.task.books.response;
+
+import com.task.books.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BookPage {
+    List<Book> books;
+    // Cursor to pass as "after" for the next page, null on the last page
+    String nextCursor;
+}
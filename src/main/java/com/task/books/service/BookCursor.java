@@ -0,0 +1,31 @@
+package com.task.books.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque pagination cursor, clients only pass back what the previous page returned
+public final class BookCursor {
+
+    private static final String PREFIX = "book:";
+
+    private BookCursor() {
+
+    }
+
+    public static String encode(Integer bookId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + bookId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Integer decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Integer.valueOf(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+}
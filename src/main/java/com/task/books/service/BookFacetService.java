@@ -0,0 +1,80 @@
+package com.task.books.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.books.cache.CatalogGeneration;
+import com.task.books.model.Book;
+import com.task.books.repository.BookFacetRepository;
+import com.task.books.repository.BookSpecifications;
+import com.task.books.response.BookFacets;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+// Facet counts for the filters of /api/books/filter, cached per filter and catalog generation.
+// Any committed change advances the generation, so older results are never served and just age out of the cache.
+@Service
+public class BookFacetService {
+    public static final String CACHE_NAME = "facets";
+
+    private final BookFacetRepository bookFacetRepository;
+    private final CatalogGeneration catalogGeneration;
+    private final PendingRatingDeltas pendingRatingDeltas;
+    // Only a cache miss opens a transaction, a cached result is served without a connection
+    private final TransactionTemplate readOnlyTransaction;
+    private final int authorLimit;
+    private final Cache<Key, BookFacets> cache;
+
+    @Autowired
+    public BookFacetService(BookFacetRepository bookFacetRepository,
+                            CatalogGeneration catalogGeneration,
+                            PendingRatingDeltas pendingRatingDeltas,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${books.facets.author-limit:20}") int authorLimit,
+                            @Value("${books.facets.cache-size:1000}") long cacheSize,
+                            MeterRegistry meterRegistry) {
+        this.bookFacetRepository = bookFacetRepository;
+        this.catalogGeneration = catalogGeneration;
+        this.pendingRatingDeltas = pendingRatingDeltas;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.authorLimit = authorLimit;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    // Counts the stored rating aggregates, so buffered rating deltas are flushed first.
+    // The flush advances the generation, the result is then cached under the flushed state.
+    @Timed(value = "books.facets", description = "Time to count the facets of a filter", histogram = true)
+    public BookFacets getFacets(String title, Integer year, String author, Double rating) {
+        pendingRatingDeltas.flushBeforeAggregateQuery();
+        // Read before counting, a change committed meanwhile leaves the result under an outdated generation
+        Key key = new Key(normalize(title), year, normalize(author), rating, catalogGeneration.current());
+        return cache.get(key, this::count);
+    }
+
+    private BookFacets count(Key key) {
+        Specification<Book> specification = BookSpecifications.matching(key.title(), key.year(), key.author(), key.rating());
+        return readOnlyTransaction.execute(status -> new BookFacets(
+                bookFacetRepository.countByYear(specification),
+                bookFacetRepository.countByAuthor(specification, authorLimit),
+                bookFacetRepository.countByRatingBucket(specification)));
+    }
+
+    // Title and author match case-insensitively, so differently cased filters share one entry
+    private static String normalize(String value) {
+        return value == null || value.isEmpty() ? null : value.toLowerCase();
+    }
+
+    private record Key(String title, Integer year, String author, Double rating, long generation) {
+    }
+}
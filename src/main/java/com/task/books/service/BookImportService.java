@@ -0,0 +1,246 @@
+package com.task.books.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.books.cache.CatalogGeneration;
+import com.task.books.event.CatalogChangedEvent;
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import com.task.books.repository.BookImportRepository;
+import com.task.books.repository.BookImportRepository.NewBook;
+import com.task.books.request.BookImportRecord;
+import com.task.books.response.BookImportResponse;
+import com.task.books.response.BookImportResponse.Rejection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+// Streams a catalog from NDJSON or CSV into books, authors and book_author. Records are parsed one at a time
+// and written in batches, one transaction per batch, so memory stays constant whatever the input size.
+@Service
+public class BookImportService {
+    private static final Logger log = LoggerFactory.getLogger(BookImportService.class);
+
+    static final int MAX_REPORTED_REJECTIONS = 100;
+    static final long PROGRESS_INTERVAL = 100_000;
+
+    public enum Format { NDJSON, CSV }
+
+    private final BookImportRepository bookImportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogGeneration catalogGeneration;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final int batchSize;
+    private final long authorCacheSize;
+    private final Counter importedCounter;
+    private final Counter rejectedCounter;
+    private final Counter authorsCreatedCounter;
+    private final Timer batchTimer;
+
+    @Autowired
+    public BookImportService(BookImportRepository bookImportRepository,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             CatalogGeneration catalogGeneration,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${books.import.batch-size:1000}") int batchSize,
+                             @Value("${books.import.author-cache-size:100000}") long authorCacheSize) {
+        this.bookImportRepository = bookImportRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.catalogGeneration = catalogGeneration;
+        this.ndjsonReader = objectMapper.readerFor(BookImportRecord.class);
+        this.csvReader = new CsvMapper().readerFor(BookImportRecord.class)
+                .with(CsvSchema.emptySchema().withHeader().withArrayElementSeparator(";"));
+        this.batchSize = batchSize;
+        this.authorCacheSize = authorCacheSize;
+        this.importedCounter = Counter.builder("books.import.records").tag("result", "imported").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("books.import.records").tag("result", "rejected").register(meterRegistry);
+        this.authorsCreatedCounter = Counter.builder("books.import.authors.created").register(meterRegistry);
+        this.batchTimer = Timer.builder("books.import.batch").description("Time to write one import batch").register(meterRegistry);
+    }
+
+    // Malformed input stops the import with an IllegalArgumentException, batches written before it stay committed
+    public BookImportResponse importBooks(InputStream input, Format format) throws IOException {
+        ObjectReader reader = format == Format.CSV ? csvReader : ndjsonReader;
+        // Bounded, so the lookup cache cannot grow with the catalog, a miss only costs one batched lookup
+        Cache<String, Integer> authorIds = Caffeine.newBuilder().maximumSize(authorCacheSize).build();
+        ImportProgress progress = new ImportProgress();
+        List<BookImportRecord> batch = new ArrayList<>(batchSize);
+
+        try (MappingIterator<BookImportRecord> records = reader.readValues(input)) {
+            BookImportRecord record;
+            while ((record = nextRecord(records, progress)) != null) {
+                String rejection = validate(record);
+                if (rejection != null) {
+                    progress.reject(rejection);
+                    rejectedCounter.increment();
+                    continue;
+                }
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    writeBatch(batch, authorIds, progress);
+                    batch.clear();
+                }
+            }
+            writeBatch(batch, authorIds, progress);
+        } finally {
+            // Once for the whole import, also when it stopped after some batches were committed
+            if (progress.imported > 0) {
+                eventPublisher.publishEvent(new CatalogChangedEvent());
+            }
+        }
+
+        BookImportResponse response = progress.response();
+        log.info("Imported {} books ({} rejected, {} new authors) in {} ms, {} books/s",
+                response.getImported(), response.getRejected(), response.getAuthorsCreated(),
+                response.getElapsedMillis(), Math.round(response.getBooksPerSecond()));
+        return response;
+    }
+
+    // Null at the end of the input
+    private BookImportRecord nextRecord(MappingIterator<BookImportRecord> records, ImportProgress progress) {
+        long record = progress.records + 1;
+        try {
+            if (!records.hasNextValue()) {
+                return null;
+            }
+            BookImportRecord next = records.nextValue();
+            progress.records = record;
+            return next;
+        } catch (IOException | RuntimeException ex) {
+            throw new IllegalArgumentException("Malformed record " + record
+                    + ", " + progress.imported + " books were imported before it");
+        }
+    }
+
+    private static String validate(BookImportRecord record) {
+        if (record.getTitle() == null || record.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (record.getTitle().length() > Book.MAX_TITLE_LENGTH) {
+            return "title must not be longer than " + Book.MAX_TITLE_LENGTH + " characters";
+        }
+        if (record.getYear() == null) {
+            return "year is required";
+        }
+        // Checked like the title, one overlong name would otherwise fail the whole batch
+        for (String name : authorNames(record)) {
+            if (name.length() > Author.MAX_NAME_LENGTH) {
+                return "author names must not be longer than " + Author.MAX_NAME_LENGTH + " characters";
+            }
+        }
+        return null;
+    }
+
+    private void writeBatch(List<BookImportRecord> batch, Cache<String, Integer> authorIds, ImportProgress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> resolved = new HashMap<>();
+        int created = batchTimer.record(() -> transactionTemplate.execute(status -> {
+            Set<String> names = new LinkedHashSet<>();
+            for (BookImportRecord record : batch) {
+                names.addAll(authorNames(record));
+            }
+            resolved.putAll(authorIds.getAllPresent(names));
+            names.removeAll(resolved.keySet());
+            resolved.putAll(bookImportRepository.findAuthorIds(names));
+            names.removeAll(resolved.keySet());
+
+            // Upserted by name, so an import creating the same authors at the same time does not duplicate them
+            int newAuthors = 0;
+            if (!names.isEmpty()) {
+                newAuthors = bookImportRepository.insertMissingAuthors(names);
+                resolved.putAll(bookImportRepository.findAuthorIds(names));
+            }
+
+            List<Integer> bookIds = bookImportRepository.insertBooks(batch.stream()
+                    .map(record -> new NewBook(record.getTitle(), record.getYear()))
+                    .toList());
+            List<int[]> links = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                for (String name : authorNames(batch.get(i))) {
+                    links.add(new int[]{bookIds.get(i), resolved.get(name)});
+                }
+            }
+            bookImportRepository.insertBookAuthors(links);
+            // Every batch commits on its own, the change event is published once after the import
+            catalogGeneration.advance();
+            return newAuthors;
+        }));
+        // Only ids of committed authors are cached
+        authorIds.putAll(resolved);
+
+        importedCounter.increment(batch.size());
+        authorsCreatedCounter.increment(created);
+        progress.imported(batch.size(), created);
+    }
+
+    // Trimmed, non-blank and distinct, a book lists each author once
+    private static Set<String> authorNames(BookImportRecord record) {
+        Set<String> names = new LinkedHashSet<>();
+        if (record.getAuthors() != null) {
+            for (String name : record.getAuthors()) {
+                if (name != null && !name.isBlank()) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static class ImportProgress {
+        private final long startedAt = System.nanoTime();
+        private final List<Rejection> rejections = new ArrayList<>();
+        private long records;
+        private long imported;
+        private long rejected;
+        private long authorsCreated;
+
+        void reject(String message) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(records, message));
+            }
+        }
+
+        void imported(int books, int authors) {
+            long before = imported;
+            imported += books;
+            authorsCreated += authors;
+            if (imported / PROGRESS_INTERVAL != before / PROGRESS_INTERVAL) {
+                log.info("Import progress: {} books, {} books/s", imported, Math.round(booksPerSecond()));
+            }
+        }
+
+        double booksPerSecond() {
+            long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+            return imported * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        BookImportResponse response() {
+            long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+            return new BookImportResponse(imported, rejected, authorsCreated, elapsedMillis, booksPerSecond(), rejections);
+        }
+    }
+}
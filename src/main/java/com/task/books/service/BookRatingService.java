@@ -1,55 +1,183 @@
 package com.task.books.service;
 
+import com.task.books.cache.BookCache;
+import com.task.books.event.BookChangedEvent;
+import com.task.books.event.CatalogChangedEvent;
 import com.task.books.model.Book;
-import com.task.books.model.BookRating;
 import com.task.books.model.BookRatingKey;
-import com.task.books.model.Client;
+import com.task.books.repository.BookRatingBatchRepository;
+import com.task.books.repository.BookRatingBatchRepository.RatingDelta;
 import com.task.books.repository.BookRatingRepository;
 import com.task.books.repository.BookRepository;
 import com.task.books.repository.ClientRepository;
+import com.task.books.request.BookBatchRateRequest;
+import com.task.books.response.BookBatchRateResponse;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
 
 @Service
 public class BookRatingService {
 
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    private static final Comparator<BookRatingKey> KEY_ORDER =
+            Comparator.comparing(BookRatingKey::getBookId).thenComparing(BookRatingKey::getClientId);
+
     private final BookRatingRepository bookRatingRepository;
+    private final BookRatingBatchRepository bookRatingBatchRepository;
     private final BookRepository bookRepository;
     private final ClientRepository clientRepository;
+    private final BookCache bookCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PendingRatingDeltas pendingRatingDeltas;
 
     @Autowired
-    public BookRatingService(BookRepository bookRepository, BookRatingRepository bookRatingRepository, ClientRepository clientRepository) {
+    public BookRatingService(BookRepository bookRepository, BookRatingRepository bookRatingRepository, ClientRepository clientRepository, BookRatingBatchRepository bookRatingBatchRepository, BookCache bookCache, ApplicationEventPublisher eventPublisher, PendingRatingDeltas pendingRatingDeltas) {
         this.bookRepository = bookRepository;
         this.bookRatingRepository = bookRatingRepository;
         this.clientRepository = clientRepository;
+        this.bookRatingBatchRepository = bookRatingBatchRepository;
+        this.bookCache = bookCache;
+        this.eventPublisher = eventPublisher;
+        this.pendingRatingDeltas = pendingRatingDeltas;
     }
 
+    // Race-free under concurrent ratings: the rating row is upserted atomically and the book aggregates
+    // are changed with a relative UPDATE, so no value read in Java is ever written back.
+    // With write-behind enabled only the rating row is written, the aggregate delta is buffered after commit.
+    @Timed(value = "books.rate", description = "Time to rate a book", histogram = true)
+    @Transactional
     public Book rateBook(Integer bookId, Integer clientId , int rating) {
-        Book book = bookRepository.findById(bookId).orElseThrow(() -> new EntityNotFoundException("Book not found"));
-        Client client = clientRepository.findById(clientId).orElseThrow(() -> new EntityNotFoundException("Client not found"));
+        if (!bookRepository.existsById(bookId)) {
+            throw new EntityNotFoundException("Book not found");
+        }
+        // Loaded instead of counted, so the check is served by the second-level cache
+        if (clientRepository.findById(clientId).isEmpty()) {
+            throw new EntityNotFoundException("Client not found");
+        }
+
+        RatingDelta delta;
+        if (bookRatingRepository.insertIfAbsent(bookId, clientId, rating) == 1) {
+            delta = new RatingDelta(rating, 1);
+        } else {
+            int previousRating = bookRatingRepository.findRatingForUpdate(bookId, clientId);
+            bookRatingRepository.updateRating(bookId, clientId, rating);
+            delta = new RatingDelta(rating - previousRating, 0);
+        }
+        if (pendingRatingDeltas.isEnabled()) {
+            pendingRatingDeltas.addAfterCommit(bookId, delta);
+        } else {
+            bookRatingBatchRepository.applyRatingDelta(bookId, delta);
+        }
+        bookCache.invalidateAfterCommit(bookId);
+        eventPublisher.publishEvent(BookChangedEvent.of(bookId));
 
-        BookRatingKey bookRatingKey = new BookRatingKey();
-        bookRatingKey.setBookId(bookId);
-        bookRatingKey.setClientId(clientId);
+        if (!pendingRatingDeltas.isEnabled()) {
+            return bookRepository.findById(bookId).orElseThrow(() -> new EntityNotFoundException("Book not found"));
+        }
+        // The delta of this rating is buffered only after commit, so it is merged here explicitly
+        return pendingRatingDeltas.read(() -> pendingRatingDeltas.merged(bookRepository.findById(bookId)
+                .orElseThrow(() -> new EntityNotFoundException("Book not found")), delta));
+    }
+
+    // Applies many ratings with a fixed number of statements: set-based validation, JDBC batches for the rating rows
+    // and one aggregate update per affected book. Invalid items are reported and skipped, the rest is applied.
+    @Transactional
+    public BookBatchRateResponse rateBooks(List<BookBatchRateRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch must not contain more than " + MAX_BATCH_SIZE + " ratings");
+        }
+        Set<Integer> bookIds = new HashSet<>();
+        Set<Integer> clientIds = new HashSet<>();
+        for (BookBatchRateRequest request : requests) {
+            if (request.getBookId() != null) {
+                bookIds.add(request.getBookId());
+            }
+            if (request.getClientId() != null) {
+                clientIds.add(request.getClientId());
+            }
+        }
+        Set<Integer> existingBookIds = bookIds.isEmpty() ? Set.of() : bookRepository.findExistingIds(bookIds);
+        Set<Integer> existingClientIds = clientIds.isEmpty() ? Set.of() : clientRepository.findExistingIds(clientIds);
 
-        BookRating bookRating = bookRatingRepository.findById(bookRatingKey)
-                .orElse(new BookRating());
+        // Sorted so that concurrent batches lock rating rows in the same order,
+        // a pair rated twice keeps its last rating as if the items had been sent one by one
+        Map<BookRatingKey, Integer> ratings = new TreeMap<>(KEY_ORDER);
+        List<BookBatchRateResponse.Failure> failures = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BookBatchRateRequest request = requests.get(i);
+            String error = validate(request, existingBookIds, existingClientIds);
+            if (error != null) {
+                failures.add(new BookBatchRateResponse.Failure(i, request.getBookId(), request.getClientId(), error));
+            } else {
+                ratings.put(new BookRatingKey(request.getBookId(), request.getClientId()), request.getRating());
+            }
+        }
+        if (ratings.isEmpty()) {
+            return new BookBatchRateResponse(0, failures);
+        }
 
-        bookRating.setId(bookRatingKey);
-        bookRating.setBook(book);
-        bookRating.setClient(client);
-        bookRating.setRating(rating);
+        Map<BookRatingKey, Integer> previousRatings = bookRatingBatchRepository.findRatingsForUpdate(ratings.keySet());
+        Map<BookRatingKey, Integer> inserts = new TreeMap<>(KEY_ORDER);
+        Map<BookRatingKey, Integer> updates = new TreeMap<>(KEY_ORDER);
+        ratings.forEach((key, rating) -> (previousRatings.containsKey(key) ? updates : inserts).put(key, rating));
 
-        bookRatingRepository.save(bookRating);
+        if (!inserts.isEmpty()) {
+            // Pairs a concurrent writer inserted since the lock query are re-rated like existing ones
+            Set<BookRatingKey> conflicts = bookRatingBatchRepository.insertIfAbsent(inserts);
+            if (!conflicts.isEmpty()) {
+                previousRatings.putAll(bookRatingBatchRepository.findRatingsForUpdate(conflicts));
+                conflicts.forEach(key -> updates.put(key, ratings.get(key)));
+            }
+        }
+        if (!updates.isEmpty()) {
+            bookRatingBatchRepository.updateRatings(updates);
+        }
 
-        double newAverageRating = book.getRatings().stream().mapToDouble(BookRating::getRating).average().orElse(0);
+        SortedMap<Integer, RatingDelta> deltas = new TreeMap<>();
+        ratings.forEach((key, rating) -> {
+            Integer previousRating = previousRatings.get(key);
+            RatingDelta delta = previousRating == null ? new RatingDelta(rating, 1) : new RatingDelta(rating - previousRating, 0);
+            deltas.merge(key.getBookId(), delta, RatingDelta::plus);
+        });
+        bookRatingBatchRepository.applyRatingDeltas(deltas);
+        deltas.keySet().forEach(bookCache::invalidateAfterCommit);
+        eventPublisher.publishEvent(new BookChangedEvent(Set.copyOf(deltas.keySet())));
 
-        book.setAvgRating(newAverageRating);
+        return new BookBatchRateResponse(requests.size() - failures.size(), failures);
+    }
 
-        bookRepository.save(book);
+    private static String validate(BookBatchRateRequest request, Set<Integer> existingBookIds, Set<Integer> existingClientIds) {
+        if (request.getBookId() == null || request.getClientId() == null || request.getRating() == null) {
+            return "bookId, clientId and rating are required";
+        }
+        if (request.getRating() < 1 || request.getRating() > 5) {
+            return "Rating must be between 1 and 5";
+        }
+        if (!existingBookIds.contains(request.getBookId())) {
+            return "Book not found";
+        }
+        if (!existingClientIds.contains(request.getClientId())) {
+            return "Client not found";
+        }
+        return null;
+    }
 
-        return book;
+    // Repairs drifted aggregates, e.g. after ratings were written directly to the database.
+    // Buffered deltas are dropped, their rating rows are already counted by the rebuild.
+    @Transactional
+    public int rebuildRatingAggregates() {
+        pendingRatingDeltas.discardUntilCompletion();
+        int books = bookRepository.rebuildRatingAggregates();
+        bookCache.invalidateAllAfterCommit();
+        eventPublisher.publishEvent(new CatalogChangedEvent());
+        return books;
     }
 
 }
@@ -1,66 +1,242 @@
 package com.task.books.service;
 
-import com.task.books.model.Author;
+import com.task.books.cache.BookCache;
+import com.task.books.datasource.ReplicaRoutingDataSource;
+import com.task.books.event.BookChangedEvent;
 import com.task.books.model.Book;
-import com.task.books.model.BookRating;
-import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookDeleteRepository;
 import com.task.books.repository.BookRepository;
+import com.task.books.repository.BookSpecifications;
+import com.task.books.repository.BookUpdateRepository;
+import com.task.books.response.BookBatchDeleteResponse;
+import com.task.books.response.BookBatchGetResponse;
+import com.task.books.response.BookPage;
+import com.task.books.snapshot.CatalogSnapshot;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class BookService {
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Sort BY_ID = Sort.by("bookId");
+
     private final BookRepository bookRepository;
+    private final BookDeleteRepository bookDeleteRepository;
+    private final BookUpdateRepository bookUpdateRepository;
+    private final EntityManager entityManager;
+    private final BookCache bookCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PendingRatingDeltas pendingRatingDeltas;
+    private final CatalogSnapshot catalogSnapshot;
 
     @Autowired
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, BookDeleteRepository bookDeleteRepository, BookUpdateRepository bookUpdateRepository, EntityManager entityManager, BookCache bookCache, ApplicationEventPublisher eventPublisher, PendingRatingDeltas pendingRatingDeltas, CatalogSnapshot catalogSnapshot) {
         this.bookRepository = bookRepository;
+        this.bookDeleteRepository = bookDeleteRepository;
+        this.bookUpdateRepository = bookUpdateRepository;
+        this.entityManager = entityManager;
+        this.bookCache = bookCache;
+        this.eventPublisher = eventPublisher;
+        this.pendingRatingDeltas = pendingRatingDeltas;
+        this.catalogSnapshot = catalogSnapshot;
     }
 
-    // Find books with optional filters
+    // Find books with optional filters, evaluated by the catalog snapshot when it is enabled, otherwise by the database
+    @Timed(value = "books.filter", description = "Time to filter the catalog", histogram = true)
+    @Transactional(readOnly = true)
     public List<Book> filterBooks(String title, Integer year, String author, Double rating) {
-        List<Book> books = bookRepository.findAll();
-        if (title != null && !title.isEmpty()) {
-            books = books.stream().filter(book -> book.getTitle().toLowerCase().contains(title.toLowerCase())).collect(Collectors.toList());
+        if (rating != null) {
+            pendingRatingDeltas.flushBeforeAggregateQuery();
         }
-        if (year != null) {
-            books = books.stream().filter(book -> book.getYear().equals(year)).collect(Collectors.toList());
+        int[] bookIds = catalogSnapshot.filter(title, year, author, rating);
+        if (bookIds != null) {
+            return pendingRatingDeltas.read(() -> pendingRatingDeltas.merged(findAllById(bookIds)));
+        }
+        return pendingRatingDeltas.read(() -> pendingRatingDeltas.merged(
+                bookRepository.findAll(BookSpecifications.matching(title, year, author, rating), BY_ID)));
+    }
+
+    // Loads the books of ascending ids in id order, at most MAX_PAGE_SIZE ids per IN list
+    private List<Book> findAllById(int[] bookIds) {
+        List<Book> books = new ArrayList<>(bookIds.length);
+        for (int from = 0; from < bookIds.length; from += MAX_PAGE_SIZE) {
+            List<Integer> chunk = Arrays.stream(bookIds, from, Math.min(from + MAX_PAGE_SIZE, bookIds.length)).boxed().toList();
+            books.addAll(bookRepository.findAll(BookSpecifications.idIn(chunk), BY_ID));
         }
-        if (author != null && !author.isEmpty()) {
-            books = books.stream().filter(book -> book.getAuthors().stream().anyMatch(a -> a.getName().toLowerCase().contains(author.toLowerCase()))).collect(Collectors.toList());
+        return books;
+    }
+
+    // Keyset pagination: seeks past the cursor on the primary key instead of using OFFSET
+    @Transactional(readOnly = true)
+    public BookPage filterBooksPage(String title, Integer year, String author, Double rating, String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
         }
+        Integer afterId = after == null || after.isEmpty() ? null : BookCursor.decode(after);
         if (rating != null) {
-            books = books.stream().filter(book -> book.getRatings().stream().mapToDouble(BookRating::getRating).average().orElse(0) >= rating).collect(Collectors.toList());
+            pendingRatingDeltas.flushBeforeAggregateQuery();
         }
-        return books;
+
+        // One extra row tells whether there is a next page without a count query
+        List<Book> books = pendingRatingDeltas.read(() -> pendingRatingDeltas.merged(
+                findAfter(BookSpecifications.matching(title, year, author, rating), afterId, limit + 1)));
+        if (books.size() <= limit) {
+            return new BookPage(books, null);
+        }
+        List<Book> page = books.subList(0, limit);
+        return new BookPage(page, BookCursor.encode(page.get(limit - 1).getBookId()));
     }
 
+    // Hands the filter result to the consumer chunk by chunk, detaching each chunk once consumed,
+    // so the persistence context never holds more than one chunk of books
+    @Transactional(readOnly = true)
+    public void streamBooks(String title, Integer year, String author, Double rating, int chunkSize, Consumer<List<Book>> consumer) {
+        if (rating != null) {
+            pendingRatingDeltas.flushBeforeAggregateQuery();
+        }
+        Specification<Book> specification = BookSpecifications.matching(title, year, author, rating);
+        Integer afterId = null;
+        List<Book> chunk;
+        do {
+            Integer after = afterId;
+            chunk = pendingRatingDeltas.read(() -> pendingRatingDeltas.merged(findAfter(specification, after, chunkSize)));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            consumer.accept(chunk);
+            afterId = chunk.get(chunk.size() - 1).getBookId();
+            entityManager.clear();
+        } while (chunk.size() == chunkSize);
+    }
+
+    private List<Book> findAfter(Specification<Book> specification, Integer afterId, int limit) {
+        Specification<Book> seek = afterId == null ? specification : specification.and(BookSpecifications.idGreaterThan(afterId));
+        return bookRepository.findBy(seek, query -> query.sortBy(BY_ID).limit(limit).all());
+    }
+
+    // Cache misses are loaded from the primary, a lagging replica would cache a state older than the last invalidation
+    @Transactional(readOnly = true)
     public Book getBookById(Integer id) {
-        return bookRepository.findById(id).orElse(null);
+        return pendingRatingDeltas.read(() -> pendingRatingDeltas.merged(
+                bookCache.get(id, bookId -> ReplicaRoutingDataSource.onPrimary(() ->
+                        bookRepository.findWithAssociationsByBookId(bookId).orElse(null)))));
+    }
+
+    // Books of many ids with one IN query for those not cached and one batch per association,
+    // in the requested order, the ids without a book are reported instead of failing the request
+    @Transactional(readOnly = true)
+    public BookBatchGetResponse getBooksByIds(List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_PAGE_SIZE + " ids are required");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Ids must be numbers");
+        }
+        Set<Integer> requested = new LinkedHashSet<>(ids);
+        return pendingRatingDeltas.read(() -> {
+            Map<Integer, Book> found = bookCache.getAll(requested, bookIds ->
+                    ReplicaRoutingDataSource.onPrimary(() -> findWithAssociations(bookIds)));
+            List<Book> books = new ArrayList<>(found.size());
+            List<Integer> missingIds = new ArrayList<>();
+            for (Integer id : requested) {
+                Book book = found.get(id);
+                if (book == null) {
+                    missingIds.add(id);
+                } else {
+                    books.add(pendingRatingDeltas.merged(book));
+                }
+            }
+            return new BookBatchGetResponse(books, missingIds);
+        });
+    }
+
+    // Initializing the associations of the first book loads them for all books of the persistence context in one batch
+    private Map<Integer, Book> findWithAssociations(Set<Integer> bookIds) {
+        Map<Integer, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllById(bookIds)) {
+            Hibernate.initialize(book.getAuthors());
+            Hibernate.initialize(book.getRatings());
+            books.put(book.getBookId(), book);
+        }
+        return books;
     }
 
+    // Current version of the book, from the cached copy when there is one, null when the book does not exist
+    // or has buffered rating deltas the version does not cover yet. Read from the primary like the book it tags.
+    @Transactional(readOnly = true)
+    public Long getBookVersion(Integer id) {
+        if (pendingRatingDeltas.isPending(id)) {
+            return null;
+        }
+        Book cached = bookCache.getIfPresent(id);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return ReplicaRoutingDataSource.onPrimary(() -> bookRepository.findVersionById(id).orElse(null));
+    }
+
+    // A new book starts without ratings, whatever aggregates the request carried
     public Book addBook(Book book) {
-        return bookRepository.save(book);
+        book.setAvgRating(0.0);
+        book.setRatingSum(0L);
+        book.setRatingCount(0L);
+        Book savedBook = bookRepository.save(book);
+        bookCache.invalidate(savedBook.getBookId());
+        eventPublisher.publishEvent(BookChangedEvent.of(savedBook.getBookId()));
+        return savedBook;
     }
 
+    // Only title and year are written, so ratings committed concurrently keep their aggregates
+    // and there is no version of the book to conflict with
+    @Transactional
     public Book updateBook(Integer id, Book bookDetails) {
-        Book existingBook = bookRepository.findById(id)
+        if (bookUpdateRepository.updateDetails(id, bookDetails.getTitle(), bookDetails.getYear()) == 0) {
+            throw new EntityNotFoundException("Book not found");
+        }
+        Book updatedBook = bookRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Book not found"));
-
-        existingBook.setTitle(bookDetails.getTitle());
-        existingBook.setYear(bookDetails.getYear());
-        existingBook.setAvgRating(bookDetails.getAvgRating());
-
-        return bookRepository.save(existingBook);
+        bookCache.invalidateAfterCommit(id);
+        eventPublisher.publishEvent(BookChangedEvent.of(id));
+        return updatedBook;
     }
 
+    // Ratings, author links and the book are deleted with one statement each, however many ratings the book has
+    @Transactional
     public void deleteBook(Integer id) {
-        bookRepository.deleteById(id);
+        bookDeleteRepository.deleteBooks(List.of(id));
+        bookCache.invalidateAfterCommit(id);
+        eventPublisher.publishEvent(BookChangedEvent.of(id));
+    }
+
+    // Deletes up to MAX_PAGE_SIZE books with the same statements as one, ids without a book are reported
+    @Transactional
+    public BookBatchDeleteResponse deleteBooks(List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_PAGE_SIZE + " ids are required");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Ids must be numbers");
+        }
+        Set<Integer> existingIds = bookRepository.findExistingIds(ids);
+        List<Integer> missingIds = ids.stream().distinct().filter(id -> !existingIds.contains(id)).toList();
+        // Sorted, so concurrent bulk deletes lock the rows in the same order
+        int deleted = bookDeleteRepository.deleteBooks(new TreeSet<>(existingIds));
+        existingIds.forEach(bookCache::invalidateAfterCommit);
+        if (!existingIds.isEmpty()) {
+            eventPublisher.publishEvent(new BookChangedEvent(existingIds));
+        }
+        return new BookBatchDeleteResponse(deleted, missingIds);
     }
 }
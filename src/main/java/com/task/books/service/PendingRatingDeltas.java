@@ -0,0 +1,194 @@
+package com.task.books.service;
+
+import com.task.books.model.Book;
+import com.task.books.repository.BookRatingBatchRepository.RatingDelta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Write-behind buffer of rating aggregate deltas, coalesced per book until a flush applies them in one batch.
+// Reads merge the pending deltas into the stored aggregates. A flush drains and writes under the write lock,
+// so a read sees either the stored aggregates without the deltas plus the deltas, or the flushed aggregates alone.
+// Queries that filter or count by the stored aggregates cannot merge per book, they flush first instead:
+// the rating filters of BookService, which also cover the catalog snapshot, and the facets.
+// Still trailing by up to one flush interval: the leaderboard, which ranks the stored averages,
+// and the reactive API, which reads the stored aggregates without merging.
+@Component
+public class PendingRatingDeltas {
+
+    private final boolean enabled;
+    private final int maxPendingBooks;
+    private final Map<Integer, RatingDelta> pending = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Runnable thresholdListener = () -> { };
+    private volatile Runnable flusher = () -> { };
+
+    @Autowired
+    public PendingRatingDeltas(@Value("${books.rating.write-behind.enabled:false}") boolean enabled,
+                               @Value("${books.rating.write-behind.max-pending-books:1000}") int maxPendingBooks) {
+        this.enabled = enabled;
+        this.maxPendingBooks = maxPendingBooks;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    // Called once the buffer holds deltas of maxPendingBooks books
+    public void onThreshold(Runnable listener) {
+        this.thresholdListener = listener;
+    }
+
+    // Writes the pending deltas and returns once they are stored
+    public void onFlush(Runnable flusher) {
+        this.flusher = flusher;
+    }
+
+    // For a query by the stored aggregates, which would miss the pending deltas
+    public void flushBeforeAggregateQuery() {
+        if (enabled && !pending.isEmpty()) {
+            flusher.run();
+        }
+    }
+
+    // Buffers the delta once the transaction that wrote the rating row has committed. The read lock is held
+    // until the transaction completed, so a rebuild never runs between the commit and the buffering of the delta.
+    public void addAfterCommit(Integer bookId, RatingDelta delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(bookId, delta);
+            return;
+        }
+        lock.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(bookId, delta);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private void add(Integer bookId, RatingDelta delta) {
+        pending.merge(bookId, delta, RatingDelta::plus);
+        if (pending.size() >= maxPendingBooks) {
+            thresholdListener.run();
+        }
+    }
+
+    public boolean isPending(Integer bookId) {
+        return pending.containsKey(bookId);
+    }
+
+    // Runs a read of stored aggregates that merges the pending deltas, it never overlaps a flush
+    public <T> T read(Supplier<T> reader) {
+        if (!enabled) {
+            return reader.get();
+        }
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Book merged(Book book) {
+        return merged(book, null);
+    }
+
+    // The book with its pending delta and an uncommitted one applied. Managed entities are never modified,
+    // a book with deltas is returned as an unversioned copy because its version no longer describes it.
+    public Book merged(Book book, RatingDelta uncommitted) {
+        if (book == null) {
+            return null;
+        }
+        RatingDelta delta = pending.get(book.getBookId());
+        if (uncommitted != null) {
+            delta = delta == null ? uncommitted : delta.plus(uncommitted);
+        }
+        if (delta == null) {
+            return book;
+        }
+        long sum = book.getRatingSum() + delta.sum();
+        long count = book.getRatingCount() + delta.count();
+        Book copy = new Book(book.getTitle(), book.getYear(), count > 0 ? sum * 1.0 / count : 0.0);
+        copy.setBookId(book.getBookId());
+        copy.setRatingSum(sum);
+        copy.setRatingCount(count);
+        copy.setAuthors(book.getAuthors());
+        copy.setRatings(book.getRatings());
+        return copy;
+    }
+
+    public List<Book> merged(List<Book> books) {
+        if (pending.isEmpty()) {
+            return books;
+        }
+        List<Book> merged = new ArrayList<>(books.size());
+        for (Book book : books) {
+            merged.add(merged(book));
+        }
+        return merged;
+    }
+
+    // Hands the drained deltas in book id order to the writer and returns their book ids.
+    // When the writer fails they are buffered again.
+    public Set<Integer> flush(Consumer<SortedMap<Integer, RatingDelta>> writer) {
+        lock.writeLock().lock();
+        try {
+            SortedMap<Integer, RatingDelta> deltas = new TreeMap<>();
+            for (Integer bookId : pending.keySet()) {
+                RatingDelta delta = pending.remove(bookId);
+                if (delta != null) {
+                    deltas.put(bookId, delta);
+                }
+            }
+            if (deltas.isEmpty()) {
+                return Set.of();
+            }
+            try {
+                writer.accept(deltas);
+            } catch (RuntimeException ex) {
+                deltas.forEach((bookId, delta) -> pending.merge(bookId, delta, RatingDelta::plus));
+                throw ex;
+            }
+            return Set.copyOf(deltas.keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops the pending deltas, for a rebuild that recomputes the aggregates from the rating rows.
+    // Ratings and flushes wait until the rebuild transaction completed, so every rating either committed before
+    // and is counted by the rebuild alone, or commits after it and buffers its delta.
+    public void discardUntilCompletion() {
+        lock.writeLock().lock();
+        pending.clear();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock.writeLock().unlock();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.task.books.service;
+
+import com.task.books.model.Book;
+import com.task.books.repository.ReactiveBookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Read-only counterpart of BookService for the reactive API, writes stay on BookService
+@Service
+public class ReactiveBookService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final ReactiveBookRepository reactiveBookRepository;
+
+    @Autowired
+    public ReactiveBookService(ReactiveBookRepository reactiveBookRepository) {
+        this.reactiveBookRepository = reactiveBookRepository;
+    }
+
+    public Flux<Book> filterBooks(String title, Integer year, String author, Double rating) {
+        return reactiveBookRepository.findMatching(title, year, author, rating, CHUNK_SIZE);
+    }
+
+    public Mono<Book> getBookById(Integer id) {
+        return reactiveBookRepository.findById(id);
+    }
+}
@@ -0,0 +1,388 @@
+package com.task.books.snapshot;
+
+import com.task.books.event.BookChangedEvent;
+import com.task.books.event.CatalogChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Columnar copy of the filterable book columns, so the filters of /api/books/filter are evaluated in memory
+// over primitive arrays instead of by the database. Rows are kept in book id order, titles and author names are
+// dictionary encoded in lowercase, so a text filter is matched once per distinct value instead of once per book.
+// Updated after every committed change of a book, reloaded after imports. Idle unless enabled.
+// After a failed load the database answers the filters until the retry interval has passed.
+@Component
+public class CatalogSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private static final int[] NO_AUTHORS = new int[0];
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final CatalogSnapshotRepository catalogSnapshotRepository;
+    private final boolean enabled;
+    private final long retryIntervalNanos;
+
+    // Scans share the read lock, updates are applied in place under the write lock.
+    // Updates read their rows before taking it, one at a time, so the last update still wins.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile boolean loaded;
+    // Counts the loads, an update that read its rows while one ran reads them again
+    private volatile long loads;
+    // System.nanoTime() before which no load is attempted again, set by a failed load
+    private volatile long retryAt;
+    private volatile boolean failed;
+
+    private int size;
+    private int[] bookIds = new int[0];
+    private int[] years = new int[0];
+    private double[] averages = new double[0];
+    private int[] titleCodes = new int[0];
+    private int[][] authorCodes = new int[0][];
+
+    // Codes are only added, codes of titles no book has anymore are dropped with the next reload
+    private final List<String> titles = new ArrayList<>();
+    private final Map<String, Integer> titleCodeOf = new HashMap<>();
+    private final List<String> authorNames = new ArrayList<>();
+    private final Map<Integer, Integer> authorCodeOf = new HashMap<>();
+
+    @Autowired
+    public CatalogSnapshot(CatalogSnapshotRepository catalogSnapshotRepository,
+                           @Value("${books.snapshot.enabled:false}") boolean enabled,
+                           @Value("${books.snapshot.retry-interval:30s}") Duration retryInterval,
+                           MeterRegistry meterRegistry) {
+        this.catalogSnapshotRepository = catalogSnapshotRepository;
+        this.enabled = enabled;
+        this.retryIntervalNanos = retryInterval.toNanos();
+        Gauge.builder("books.snapshot.books", this, CatalogSnapshot::size)
+                .description("Books held by the in-memory catalog snapshot")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of the matching books in ascending order, with the semantics of BookSpecifications.matching.
+    // Null when the snapshot is disabled or could not be loaded, the caller then asks the database.
+    public int[] filter(String title, Integer year, String author, Double rating) {
+        if (!enabled || !ensureLoaded()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matchingTitles = title == null || title.isEmpty() ? null : codesContaining(titles, title);
+            BitSet matchingAuthors = author == null || author.isEmpty() ? null : codesContaining(authorNames, author);
+            if ((matchingTitles != null && matchingTitles.isEmpty()) || (matchingAuthors != null && matchingAuthors.isEmpty())) {
+                return new int[0];
+            }
+            boolean anyYear = year == null;
+            int wantedYear = anyYear ? 0 : year;
+            boolean anyRating = rating == null;
+            double minRating = anyRating ? 0.0 : rating;
+
+            int[] matches = new int[Math.min(size, INITIAL_CAPACITY)];
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                if ((anyYear || years[row] == wantedYear)
+                        && (anyRating || averages[row] >= minRating)
+                        && (matchingTitles == null || matchingTitles.get(titleCodes[row]))
+                        && (matchingAuthors == null || containsAny(matchingAuthors, authorCodes[row]))) {
+                    if (count == matches.length) {
+                        matches = Arrays.copyOf(matches, matches.length * 2);
+                    }
+                    matches[count++] = bookIds[row];
+                }
+            }
+            return count == matches.length ? matches : Arrays.copyOf(matches, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled || event.bookIds().isEmpty()) {
+            return;
+        }
+        updateLock.lock();
+        try {
+            // Unless a load is running, a later load reads this committed change anyway
+            if (!loaded && !lock.isWriteLocked()) {
+                return;
+            }
+            long seenLoads = loads;
+            // Read without blocking the scans, the committed state is read one update at a time
+            ChangedRows rows = readChangedRows(event.bookIds());
+            lock.writeLock().lock();
+            try {
+                // Checked under the lock: an event arriving during a load waits for it and is applied afterwards,
+                // without a loaded snapshot the next load reads the change anyway
+                if (!loaded) {
+                    return;
+                }
+                if (loads != seenLoads) {
+                    // The load may have read an older state than the rows, so they are read again under the lock
+                    rows = readChangedRows(event.bookIds());
+                }
+                apply(event.bookIds(), rows);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException ex) {
+            // The next filter loads everything again instead of scanning a snapshot that missed this change
+            log.warn("Could not update the catalog snapshot for books {}, it will be reloaded", event.bookIds(), ex);
+            loaded = false;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            loads++;
+            clear();
+            catalogSnapshotRepository.forEachBook((bookId, title, year, avgRating) ->
+                    append(bookId, title, year, avgRating, NO_AUTHORS));
+            catalogSnapshotRepository.forEachAuthorLink((bookId, authorId, name) -> {
+                int row = Arrays.binarySearch(bookIds, 0, size, bookId);
+                // A book inserted after the books were read has no row yet, its change event waits
+                // for this load to release the lock and adds it
+                if (row >= 0) {
+                    int[] codes = authorCodes[row];
+                    codes = Arrays.copyOf(codes, codes.length + 1);
+                    codes[codes.length - 1] = authorCode(authorId, name);
+                    authorCodes[row] = codes;
+                }
+            });
+            loaded = true;
+            failed = false;
+            log.info("Loaded {} books into the catalog snapshot", size);
+        } catch (RuntimeException ex) {
+            log.warn("Could not load the catalog snapshot, filters are evaluated by the database", ex);
+            clear();
+            failed = true;
+            retryAt = System.nanoTime() + retryIntervalNanos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ChangedRows readChangedRows(Set<Integer> bookIds) {
+        ChangedRows rows = new ChangedRows(new ArrayList<>(), new ArrayList<>());
+        catalogSnapshotRepository.forEachAuthorLink(bookIds, (bookId, authorId, name) ->
+                rows.authorLinks().add(new AuthorLink(bookId, authorId, name)));
+        catalogSnapshotRepository.forEachBook(bookIds, (bookId, title, year, avgRating) ->
+                rows.books().add(new BookRow(bookId, title, year, avgRating)));
+        return rows;
+    }
+
+    // Under the write lock, author codes are assigned here because they extend the dictionary
+    private void apply(Set<Integer> bookIds, ChangedRows rows) {
+        Map<Integer, List<Integer>> authorsOf = new HashMap<>();
+        for (AuthorLink link : rows.authorLinks()) {
+            authorsOf.computeIfAbsent(link.bookId(), id -> new ArrayList<>()).add(authorCode(link.authorId(), link.name()));
+        }
+        Set<Integer> present = new HashSet<>();
+        for (BookRow book : rows.books()) {
+            present.add(book.bookId());
+            put(book.bookId(), book.title(), book.year(), book.avgRating(), toArray(authorsOf.get(book.bookId())));
+        }
+        for (Integer bookId : bookIds) {
+            if (!present.contains(bookId)) {
+                remove(bookId);
+            }
+        }
+    }
+
+    private boolean ensureLoaded() {
+        if (!loaded && !retryPending()) {
+            lock.writeLock().lock();
+            try {
+                if (!loaded && !retryPending()) {
+                    rebuild();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return loaded;
+    }
+
+    // Keeps a failing database from being asked for the whole catalog, under the write lock, by every filter
+    private boolean retryPending() {
+        return failed && System.nanoTime() - retryAt < 0;
+    }
+
+    private void clear() {
+        size = 0;
+        bookIds = new int[INITIAL_CAPACITY];
+        years = new int[INITIAL_CAPACITY];
+        averages = new double[INITIAL_CAPACITY];
+        titleCodes = new int[INITIAL_CAPACITY];
+        authorCodes = new int[INITIAL_CAPACITY][];
+        titles.clear();
+        titleCodeOf.clear();
+        authorNames.clear();
+        authorCodeOf.clear();
+    }
+
+    // Books arrive in id order while loading, so rows are only appended
+    private void append(int bookId, String title, int year, double avgRating, int[] authors) {
+        ensureCapacity(size + 1);
+        set(size++, bookId, title, year, avgRating, authors);
+    }
+
+    // New books have the highest ids, so they are appended as well and nothing is shifted
+    private void put(int bookId, String title, int year, double avgRating, int[] authors) {
+        int row = Arrays.binarySearch(bookIds, 0, size, bookId);
+        if (row >= 0) {
+            set(row, bookId, title, year, avgRating, authors);
+            return;
+        }
+        row = -row - 1;
+        ensureCapacity(size + 1);
+        shift(row, row + 1, size - row);
+        size++;
+        set(row, bookId, title, year, avgRating, authors);
+    }
+
+    private void remove(int bookId) {
+        int row = Arrays.binarySearch(bookIds, 0, size, bookId);
+        if (row >= 0) {
+            shift(row + 1, row, size - row - 1);
+            size--;
+            authorCodes[size] = null;
+        }
+    }
+
+    private void set(int row, int bookId, String title, int year, double avgRating, int[] authors) {
+        bookIds[row] = bookId;
+        years[row] = year;
+        averages[row] = avgRating;
+        titleCodes[row] = titleCode(title);
+        authorCodes[row] = authors;
+    }
+
+    private void shift(int from, int to, int length) {
+        System.arraycopy(bookIds, from, bookIds, to, length);
+        System.arraycopy(years, from, years, to, length);
+        System.arraycopy(averages, from, averages, to, length);
+        System.arraycopy(titleCodes, from, titleCodes, to, length);
+        System.arraycopy(authorCodes, from, authorCodes, to, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bookIds.length) {
+            int grown = Math.max(capacity, bookIds.length + (bookIds.length >> 1));
+            bookIds = Arrays.copyOf(bookIds, grown);
+            years = Arrays.copyOf(years, grown);
+            averages = Arrays.copyOf(averages, grown);
+            titleCodes = Arrays.copyOf(titleCodes, grown);
+            authorCodes = Arrays.copyOf(authorCodes, grown);
+        }
+    }
+
+    private int titleCode(String title) {
+        String lowercase = title.toLowerCase();
+        Integer code = titleCodeOf.get(lowercase);
+        if (code == null) {
+            code = titles.size();
+            titles.add(lowercase);
+            titleCodeOf.put(lowercase, code);
+        }
+        return code;
+    }
+
+    // Also picks up the current name of an author already known
+    private int authorCode(int authorId, String name) {
+        Integer code = authorCodeOf.get(authorId);
+        if (code == null) {
+            code = authorNames.size();
+            authorNames.add(name.toLowerCase());
+            authorCodeOf.put(authorId, code);
+        } else {
+            authorNames.set(code, name.toLowerCase());
+        }
+        return code;
+    }
+
+    // The same case-insensitive substring match as the LIKE patterns of BookSpecifications
+    private static BitSet codesContaining(List<String> dictionary, String value) {
+        String needle = value.toLowerCase();
+        BitSet codes = new BitSet(dictionary.size());
+        for (int code = 0; code < dictionary.size(); code++) {
+            if (dictionary.get(code).contains(needle)) {
+                codes.set(code);
+            }
+        }
+        return codes;
+    }
+
+    private static boolean containsAny(BitSet codes, int[] candidates) {
+        for (int candidate : candidates) {
+            if (codes.get(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toArray(List<Integer> codes) {
+        if (codes == null) {
+            return NO_AUTHORS;
+        }
+        int[] array = new int[codes.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = codes.get(i);
+        }
+        return array;
+    }
+
+    private record ChangedRows(List<AuthorLink> authorLinks, List<BookRow> books) {
+    }
+
+    private record AuthorLink(int bookId, int authorId, String name) {
+    }
+
+    private record BookRow(int bookId, String title, int year, double avgRating) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.task.books.snapshot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+// Reads the filterable columns of books straight into the snapshot, rows are handed over as they are read
+@Repository
+class CatalogSnapshotRepository {
+
+    private static final String BOOK_COLUMNS = "b.book_id, b.title, b.published_year, b.average_rating";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    CatalogSnapshotRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Every book in book id order
+    void forEachBook(BookRowHandler handler) {
+        jdbcTemplate.query("SELECT %s FROM books b ORDER BY b.book_id".formatted(BOOK_COLUMNS),
+                Map.of(), bookRows(handler));
+    }
+
+    // Every author link, the author name repeated per link
+    void forEachAuthorLink(AuthorLinkHandler handler) {
+        jdbcTemplate.query("""
+                        SELECT ba.book_id, a.author_id, a.name
+                        FROM book_author ba JOIN authors a ON a.author_id = ba.author_id
+                        """,
+                Map.of(), authorLinkRows(handler));
+    }
+
+    // The given books in book id order, deleted books are missing
+    void forEachBook(Collection<Integer> bookIds, BookRowHandler handler) {
+        jdbcTemplate.query("SELECT %s FROM books b WHERE b.book_id IN (:bookIds) ORDER BY b.book_id".formatted(BOOK_COLUMNS),
+                Map.of("bookIds", bookIds), bookRows(handler));
+    }
+
+    void forEachAuthorLink(Collection<Integer> bookIds, AuthorLinkHandler handler) {
+        jdbcTemplate.query("""
+                        SELECT ba.book_id, a.author_id, a.name
+                        FROM book_author ba JOIN authors a ON a.author_id = ba.author_id
+                        WHERE ba.book_id IN (:bookIds)
+                        """,
+                Map.of("bookIds", bookIds), authorLinkRows(handler));
+    }
+
+    private static RowCallbackHandler bookRows(BookRowHandler handler) {
+        return resultSet -> handler.accept(
+                resultSet.getInt("book_id"),
+                resultSet.getString("title"),
+                resultSet.getInt("published_year"),
+                resultSet.getDouble("average_rating"));
+    }
+
+    private static RowCallbackHandler authorLinkRows(AuthorLinkHandler handler) {
+        return resultSet -> handler.accept(
+                resultSet.getInt("book_id"),
+                resultSet.getInt("author_id"),
+                resultSet.getString("name"));
+    }
+
+    @FunctionalInterface
+    interface BookRowHandler {
+        void accept(int bookId, String title, int year, double avgRating);
+    }
+
+    @FunctionalInterface
+    interface AuthorLinkHandler {
+        void accept(int bookId, int authorId, String name);
+    }
+}
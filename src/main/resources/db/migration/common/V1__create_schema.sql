@@ -0,0 +1,34 @@
+-- Tables as mapped by the entities. IF NOT EXISTS lets databases created before the migrations
+-- were introduced be baselined at version 0 and run every migration.
+CREATE TABLE IF NOT EXISTS authors (
+    author_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS clients (
+    client_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS books (
+    book_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    published_year INTEGER NOT NULL,
+    average_rating DOUBLE PRECISION DEFAULT 0.0 NOT NULL,
+    rating_sum BIGINT DEFAULT 0 NOT NULL,
+    rating_count BIGINT DEFAULT 0 NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS book_author (
+    book_id INTEGER NOT NULL REFERENCES books (book_id),
+    author_id INTEGER NOT NULL REFERENCES authors (author_id),
+    PRIMARY KEY (book_id, author_id)
+);
+
+CREATE TABLE IF NOT EXISTS book_rating (
+    book_id INTEGER NOT NULL REFERENCES books (book_id),
+    client_id INTEGER NOT NULL REFERENCES clients (client_id),
+    rating INTEGER NOT NULL,
+    PRIMARY KEY (book_id, client_id)
+);
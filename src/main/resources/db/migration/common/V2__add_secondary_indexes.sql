@@ -0,0 +1,7 @@
+-- The primary keys of the link tables lead with book_id, these serve the lookups from the other side
+CREATE INDEX IF NOT EXISTS idx_book_rating_client_id ON book_rating (client_id);
+CREATE INDEX IF NOT EXISTS idx_book_author_author_id ON book_author (author_id);
+
+-- Year and minimum rating filters, the rating index also serves the leaderboard ordering
+CREATE INDEX IF NOT EXISTS idx_books_published_year ON books (published_year);
+CREATE INDEX IF NOT EXISTS idx_books_average_rating ON books (average_rating);
@@ -0,0 +1,19 @@
+-- Imports upsert authors by name, which needs names to be unique. Authors created twice before are merged
+-- into the oldest author of their name: their books are linked to it, then the duplicates are removed.
+INSERT INTO book_author (book_id, author_id)
+SELECT DISTINCT link.book_id, (SELECT MIN(oldest.author_id) FROM authors oldest WHERE oldest.name = duplicate.name)
+FROM book_author link
+JOIN authors duplicate ON duplicate.author_id = link.author_id
+WHERE duplicate.author_id > (SELECT MIN(oldest.author_id) FROM authors oldest WHERE oldest.name = duplicate.name)
+  AND NOT EXISTS (SELECT 1 FROM book_author kept
+                  WHERE kept.book_id = link.book_id
+                    AND kept.author_id = (SELECT MIN(oldest.author_id) FROM authors oldest WHERE oldest.name = duplicate.name));
+
+DELETE FROM book_author
+WHERE author_id IN (SELECT duplicate.author_id FROM authors duplicate
+                    WHERE duplicate.author_id > (SELECT MIN(oldest.author_id) FROM authors oldest WHERE oldest.name = duplicate.name));
+
+DELETE FROM authors
+WHERE author_id > (SELECT MIN(oldest.author_id) FROM authors oldest WHERE oldest.name = authors.name);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_authors_name ON authors (name);
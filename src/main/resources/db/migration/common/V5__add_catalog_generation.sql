@@ -0,0 +1,7 @@
+-- One row counting the committed changes of books and ratings, the ETag of filter results on every instance
+CREATE TABLE IF NOT EXISTS catalog_generation (
+    generation BIGINT NOT NULL
+);
+
+INSERT INTO catalog_generation (generation)
+SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM catalog_generation);
@@ -0,0 +1,10 @@
+-- The generation is advanced by every writing transaction before it commits. Counted in 16 slots, so concurrent
+-- writers mostly lock different rows. The generation is the sum of all slots, the former single row becomes slot 0.
+ALTER TABLE catalog_generation ADD COLUMN IF NOT EXISTS slot INTEGER DEFAULT 0 NOT NULL;
+
+INSERT INTO catalog_generation (slot, generation)
+SELECT s.slot, 0
+FROM (VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9), (10), (11), (12), (13), (14), (15)) AS s (slot)
+WHERE NOT EXISTS (SELECT 1 FROM catalog_generation existing WHERE existing.slot = s.slot);
+
+ALTER TABLE catalog_generation ADD PRIMARY KEY (slot);
@@ -0,0 +1,14 @@
+-- Databases created by Hibernate before the migrations were baselined at version 0, V1 found their books table
+-- and kept it as it was. The columns added since are added here, existing books start at version 0.
+ALTER TABLE books ADD COLUMN IF NOT EXISTS rating_sum BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN IF NOT EXISTS rating_count BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Their ratings were never counted into the new aggregates, a new rating would otherwise replace the average.
+-- Books created by the migrations already count their ratings and are left alone.
+UPDATE books SET
+    rating_sum = (SELECT COALESCE(SUM(r.rating), 0) FROM book_rating r WHERE r.book_id = books.book_id),
+    rating_count = (SELECT COUNT(*) FROM book_rating r WHERE r.book_id = books.book_id),
+    average_rating = (SELECT COALESCE(AVG(CAST(r.rating AS DOUBLE PRECISION)), 0.0) FROM book_rating r WHERE r.book_id = books.book_id)
+WHERE rating_count = 0
+  AND EXISTS (SELECT 1 FROM book_rating r WHERE r.book_id = books.book_id);
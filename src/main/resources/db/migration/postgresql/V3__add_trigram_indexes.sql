@@ -0,0 +1,5 @@
+-- Trigram indexes serving the case-insensitive substring filters (lower(column) LIKE '%term%')
+-- PostgreSQL only, elsewhere the substring filters scan
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_books_title_trgm ON books USING gin (lower(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_authors_name_trgm ON authors USING gin (lower(name) gin_trgm_ops);
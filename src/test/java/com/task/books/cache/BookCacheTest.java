@@ -0,0 +1,95 @@
+package com.task.books.cache;
+
+import com.task.books.model.Book;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BookCache bookCache;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookCache = new BookCache(100, Duration.ofMinutes(10), meterRegistry);
+    }
+
+    @Test
+    void get_LoadsOnceAndRecordsHitsAndMisses() {
+        AtomicInteger loads = new AtomicInteger();
+        Book book = new Book("Cached", 2000, 0.0);
+
+        bookCache.get(1, id -> {
+            loads.incrementAndGet();
+            return book;
+        });
+        Book cached = bookCache.get(1, id -> {
+            loads.incrementAndGet();
+            return book;
+        });
+
+        assertSame(book, cached);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", BookCache.NAME).tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", BookCache.NAME).tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void get_DoesNotCacheLoadThatOverlappedAnInvalidation() {
+        Book stale = new Book("Stale", 2000, 0.0);
+        Book fresh = new Book("Fresh", 2000, 5.0);
+
+        // A write commits and invalidates while the read is still loading the old state
+        Book loaded = bookCache.get(1, id -> {
+            bookCache.invalidate(1);
+            return stale;
+        });
+
+        assertSame(stale, loaded);
+        assertSame(fresh, bookCache.get(1, id -> fresh));
+    }
+
+    @Test
+    void invalidateAfterCommit_WaitsForTheTransactionToCommit() {
+        Book book = new Book("Cached", 2000, 0.0);
+        Book updated = new Book("Updated", 2000, 0.0);
+        bookCache.get(1, id -> book);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bookCache.invalidateAfterCommit(1);
+            assertSame(book, bookCache.get(1, id -> updated));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertSame(updated, bookCache.get(1, id -> updated));
+    }
+
+    @Test
+    void invalidateAll_DropsEveryEntry() {
+        Book book = new Book("Cached", 2000, 0.0);
+        Book updated = new Book("Updated", 2000, 0.0);
+        bookCache.get(1, id -> book);
+        bookCache.get(2, id -> book);
+
+        bookCache.invalidateAll();
+
+        assertSame(updated, bookCache.get(1, id -> updated));
+        assertSame(updated, bookCache.get(2, id -> updated));
+    }
+}
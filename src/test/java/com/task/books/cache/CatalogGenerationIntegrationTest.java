@@ -0,0 +1,81 @@
+package com.task.books.cache;
+
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import com.task.books.service.BookRatingService;
+import com.task.books.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doThrow;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class CatalogGenerationIntegrationTest {
+
+    @Autowired
+    private CatalogGeneration catalogGeneration;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+    @SpyBean
+    private CatalogGenerationRepository catalogGenerationRepository;
+
+    private Book book;
+    private Client client;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        book = bookRepository.save(new Book("Tagged Book", 2020, 0.0));
+        client = clientRepository.save(new Client("John Doe"));
+    }
+
+    @Test
+    void changes_AdvanceTheGenerationWhenTheyCommit() {
+        long before = catalogGeneration.current();
+
+        bookService.updateBook(book.getBookId(), new Book("Retagged Book", 2021, 0.0));
+        bookRatingService.rateBook(book.getBookId(), client.getClientId(), 4);
+
+        assertEquals(before + 2, catalogGeneration.current());
+    }
+
+    @Test
+    void failedAdvance_RollsTheChangeBack() {
+        doThrow(new DataAccessResourceFailureException("Database unavailable")).when(catalogGenerationRepository).advance();
+        long before = catalogGeneration.current();
+
+        assertThrows(RuntimeException.class, () -> bookService.updateBook(book.getBookId(), new Book("Retagged Book", 2021, 0.0)));
+        assertThrows(RuntimeException.class, () -> bookRatingService.rateBook(book.getBookId(), client.getClientId(), 4));
+
+        Book stored = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals("Tagged Book", stored.getTitle());
+        assertEquals(0L, stored.getRatingCount());
+        assertEquals(0, bookRatingRepository.count());
+        assertEquals(before, catalogGeneration.current());
+    }
+}
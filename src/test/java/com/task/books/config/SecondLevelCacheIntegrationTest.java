@@ -0,0 +1,113 @@
+package com.task.books.config;
+
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import com.task.books.service.BookRatingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@AutoConfigureMockMvc
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private Author author;
+    private Client client;
+    private Book book;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        author = authorRepository.save(new Author("Cached Author"));
+        client = clientRepository.save(new Client("Cached Client"));
+        Book cachedBook = new Book("Cached Book", 2020, 0.0);
+        cachedBook.setAuthors(Set.of(author));
+        book = bookRepository.save(cachedBook);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void rateBook_FindsClientInSecondLevelCache() {
+        // Identity inserts are not cached, the first lookup loads the client into the cache
+        bookRatingService.rateBook(book.getBookId(), client.getClientId(), 4);
+        bookRatingService.rateBook(book.getBookId(), client.getClientId(), 5);
+
+        assertEquals(1, statistics.getDomainDataRegionStatistics(SecondLevelCacheConfiguration.CLIENTS).getHitCount());
+        assertEquals(1, statistics.getEntityStatistics(Client.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void authorChangedThroughRepository_IsServedUpdated() throws Exception {
+        filterCachedBook().andExpect(jsonPath("$[0].authors[0].name").value("Cached Author"));
+
+        author.setName("Renamed Author");
+        authorRepository.save(author);
+
+        // The update writes through the cached author, it is not loaded again
+        filterCachedBook().andExpect(jsonPath("$[0].authors[0].name").value("Renamed Author"));
+        assertEquals(1, statistics.getEntityStatistics(Author.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void regions_ExposeCacheMetrics() throws Exception {
+        filterCachedBook();
+
+        for (String region : SecondLevelCacheConfiguration.REGIONS) {
+            assertNotNull(meterRegistry.find("cache.evictions").tag("cache", region).functionCounter(), region);
+            assertNotNull(meterRegistry.find("cache.gets").tag("cache", region).tag("result", "hit").functionCounter(), region);
+        }
+    }
+
+    private ResultActions filterCachedBook() throws Exception {
+        return mockMvc.perform(get("/api/books/filter").param("title", "Cached Book"))
+                .andExpect(status().isOk());
+    }
+}
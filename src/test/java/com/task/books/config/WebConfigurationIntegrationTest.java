@@ -0,0 +1,88 @@
+package com.task.books.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.task.books.model.Book;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// A Boot Jackson setting the default mapper would ignore, so the binary encodings show which mapper wrote them
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.jackson.property-naming-strategy=SNAKE_CASE")
+@AutoConfigureMockMvc
+class WebConfigurationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    private Integer bookId;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        bookId = bookRepository.save(new Book("Encoded Book", 2024, 0.0)).getBookId();
+    }
+
+    @Test
+    void binaryConverters_ReplaceTheDefaults() {
+        List<HttpMessageConverter<?>> converters = handlerAdapter.getMessageConverters();
+
+        for (Class<?> type : List.of(MappingJackson2SmileHttpMessageConverter.class, MappingJackson2CborHttpMessageConverter.class)) {
+            List<HttpMessageConverter<?>> matching = converters.stream().filter(type::isInstance).toList();
+            assertEquals(1, matching.size(), type.getSimpleName());
+            assertTrue(((AbstractJackson2HttpMessageConverter) matching.get(0)).getObjectMapper().getRegisteredModuleIds()
+                    .contains("org.springframework.boot.jackson.JsonComponentModule"), type.getSimpleName());
+        }
+    }
+
+    @Test
+    void getBookById_EncodesCborWithTheCustomizedMapper() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/books/" + bookId).accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode book = new CBORMapper().readTree(body);
+        assertEquals(bookId, book.get("book_id").asInt());
+        assertFalse(book.has("bookId"));
+    }
+
+    @Test
+    void getBooks_EncodesSmileWithTheCustomizedMapper() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/books/filter").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode books = new SmileMapper().readTree(body);
+        assertEquals(bookId, books.get(0).get("book_id").asInt());
+        assertTrue(books.get(0).has("avg_rating"));
+    }
+}
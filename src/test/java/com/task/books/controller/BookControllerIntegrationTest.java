@@ -1,22 +1,33 @@
 package com.task.books.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.task.books.model.*;
 import com.task.books.repository.AuthorRepository;
 import com.task.books.repository.BookRatingRepository;
 import com.task.books.repository.BookRepository;
 import com.task.books.repository.ClientRepository;
+import com.task.books.service.BookRatingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -28,6 +39,9 @@ class BookControllerIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Autowired
     private BookRepository bookRepository;
 
@@ -40,6 +54,8 @@ class BookControllerIntegrationTest {
     private AuthorRepository authorRepository;
     @Autowired
     private BookRatingRepository bookRatingRepository;
+    @Autowired
+    private BookRatingService bookRatingService;
 
     private Integer bookId1;
     private Integer bookId2;
@@ -80,6 +96,7 @@ class BookControllerIntegrationTest {
         BookRating rating2 = new BookRating(key2, testBook2, testClient, 4);
 
         bookRatingRepository.saveAll(List.of(rating1, rating2));
+        bookRatingService.rebuildRatingAggregates();
     }
 
     @Test
@@ -155,6 +172,52 @@ class BookControllerIntegrationTest {
                 .andExpect(jsonPath("$[1].title").value("Integration Test2"));
     }
 
+    @Test
+    public void getBooksPage_FollowsCursorToLastPage() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/api/books/filter")
+                        .param("title", "Integration")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books.length()").value(1))
+                .andExpect(jsonPath("$.books[0].title").value("Integration Test"))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn();
+
+        String cursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/books/filter")
+                        .param("title", "Integration")
+                        .param("after", cursor)
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books.length()").value(1))
+                .andExpect(jsonPath("$.books[0].title").value("Integration Test2"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    public void getBooksPage_InvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/books/filter")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void streamBooks_ReturnsAllFilteredBooks() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/books/filter")
+                        .param("stream", "true")
+                        .param("rating", "4"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].title").value("Integration Test"))
+                .andExpect(jsonPath("$[0].authors[0].name").value("Alice Smith"))
+                .andExpect(jsonPath("$[1].ratings[0].rating").value(4));
+    }
+
     @Test
     public void rateBook_Success() throws Exception {
         mockMvc.perform(post("/api/books/rate/" + bookId2)
@@ -163,7 +226,27 @@ class BookControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.title").value("Integration Test2"))
                 .andExpect(jsonPath("$.year").value(2023))
-                .andExpect(jsonPath("$.ratings[0].rating").value(3));
+                .andExpect(jsonPath("$.ratings[0].rating").value(3))
+                .andExpect(jsonPath("$.avgRating").value(3.0))
+                .andExpect(jsonPath("$.ratingCount").value(1));
+    }
+
+    @Test
+    public void rateBooks_ReportsFailuresWithoutAbortingBatch() throws Exception {
+        mockMvc.perform(post("/api/books/rate/batch")
+                        .contentType("application/json")
+                        .content("[{\"bookId\": " + bookId1 + ", \"clientId\": " + clientId + ", \"rating\": 1},"
+                                + "{\"bookId\": 999999, \"clientId\": " + clientId + ", \"rating\": 3},"
+                                + "{\"bookId\": " + bookId2 + ", \"clientId\": " + clientId + ", \"rating\": 2}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.failures.length()").value(1))
+                .andExpect(jsonPath("$.failures[0].index").value(1))
+                .andExpect(jsonPath("$.failures[0].message").value("Book not found"));
+
+        mockMvc.perform(get("/api/books/" + bookId1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.avgRating").value(1.0));
     }
 
     @Test
@@ -182,6 +265,17 @@ class BookControllerIntegrationTest {
         assert(books.stream().anyMatch(book -> "New Integration Test Book".equals(book.getTitle())));
     }
 
+    @Test
+    public void addBook_StartsWithoutRatings() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .contentType("application/json")
+                        .content("{\"title\": \"Pre-rated Book\", \"year\": 2023, \"avgRating\": 5.0, \"ratingSum\": 50, \"ratingCount\": 10}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.avgRating").value(0.0))
+                .andExpect(jsonPath("$.ratingSum").value(0))
+                .andExpect(jsonPath("$.ratingCount").value(0));
+    }
+
     @Test
     public void updateBook_Success() throws Exception {
         Book updatedBook = new Book("New Title", 2023, 5.0);
@@ -216,6 +310,188 @@ class BookControllerIntegrationTest {
                 .andExpect(jsonPath("$.year").value(2022));
     }
 
+    @Test
+    void getBooksByIds_ReturnsBooksInRequestedOrderAndMissingIds() throws Exception {
+        int missingId = Math.max(bookId1, bookId2) + 1000;
+
+        mockMvc.perform(get("/api/books").param("ids", bookId2 + "," + missingId + "," + bookId1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books.length()").value(2))
+                .andExpect(jsonPath("$.books[0].title").value("Integration Test2"))
+                .andExpect(jsonPath("$.books[1].title").value("Integration Test"))
+                .andExpect(jsonPath("$.books[1].authors[0].name").value("Alice Smith"))
+                .andExpect(jsonPath("$.books[1].ratings.length()").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(missingId));
+
+        mockMvc.perform(get("/api/books").param("ids", ""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getBookById_DoesNotServeStaleAverageAfterRating() throws Exception {
+        mockMvc.perform(get("/api/books/" + bookId2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.avgRating").value(4.0));
+
+        mockMvc.perform(post("/api/books/rate/" + bookId2)
+                        .contentType("application/json")
+                        .content("{\"clientId\": \"" + clientId + "\", \"rating\": 2}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/" + bookId2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.avgRating").value(2.0))
+                .andExpect(jsonPath("$.ratings[0].rating").value(2));
+    }
+
+    @Test
+    void getBookById_RevalidatesWithVersionETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/books/" + bookId2))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/books/" + bookId2).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/books/rate/" + bookId2)
+                        .contentType("application/json")
+                        .content("{\"clientId\": \"" + clientId + "\", \"rating\": 2}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/" + bookId2).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.avgRating").value(2.0));
+    }
+
+    @Test
+    void updateBook_ConcurrentRatingsDoNotConflict() throws Exception {
+        String etag = mockMvc.perform(get("/api/books/" + bookId1))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        List<Client> raters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            raters.add(clientRepository.save(new Client("Concurrent Rater " + i)));
+        }
+
+        // Every rating increments the version the edits would otherwise be checked against
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(raters.size() + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Client rater : raters) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                mockMvc.perform(post("/api/books/rate/" + bookId1)
+                                .contentType("application/json")
+                                .content("{\"clientId\": " + rater.getClientId() + ", \"rating\": 3}"))
+                        .andExpect(status().isOk());
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int round = 0; round < 40; round++) {
+                mockMvc.perform(put("/api/books/" + bookId1)
+                                .contentType("application/json")
+                                .content("{\"title\": \"Edited Title\", \"year\": 2023}"))
+                        .andExpect(status().isOk());
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        mockMvc.perform(get("/api/books/" + bookId1).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.title").value("Edited Title"))
+                .andExpect(jsonPath("$.ratingCount").value(raters.size() + 1));
+    }
+
+    @Test
+    void getBooks_RevalidatesWithCatalogGenerationETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/books/filter").param("year", "2023"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/books/filter").param("year", "2023").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/books/rate/" + bookId2)
+                        .contentType("application/json")
+                        .content("{\"clientId\": \"" + clientId + "\", \"rating\": 2}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/filter").param("year", "2023").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].avgRating").value(2.0));
+    }
+
+    @Test
+    void getBooks_ETagFollowsChangesMadeThroughOtherInstances() throws Exception {
+        String etag = mockMvc.perform(get("/api/books/filter").param("year", "2023"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // What another instance sharing the database does after committing a change
+        jdbcTemplate.update("UPDATE catalog_generation SET generation = generation + 1");
+
+        mockMvc.perform(get("/api/books/filter").param("year", "2023").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    void getBookById_NegotiatesCbor() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/books/" + bookId1).accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode book = new CBORMapper().readTree(body);
+        assertEquals("Integration Test", book.get("title").asText());
+        assertEquals("Alice Smith", book.get("authors").get(0).get("name").asText());
+    }
+
+    @Test
+    void getBooks_NegotiatesSmileAndDefaultsToJson() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/books/filter").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(2, new SmileMapper().readTree(body).size());
+
+        mockMvc.perform(get("/api/books/filter").accept("*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"));
+    }
+
+    @Test
+    void deleteBooks_DeletesBooksWithTheirRatingsAndReportsMissingIds() throws Exception {
+        int missingId = Math.max(bookId1, bookId2) + 1000;
+        mockMvc.perform(get("/api/books/" + bookId1)).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/books").param("ids", bookId1 + "," + missingId + "," + bookId2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2))
+                .andExpect(jsonPath("$.missingIds[0]").value(missingId));
+
+        assertTrue(bookRepository.findAll().isEmpty());
+        assertTrue(bookRatingRepository.findAll().isEmpty());
+        assertEquals(1, authorRepository.count());
+        // The cached copy is gone with the book
+        mockMvc.perform(get("/api/books/" + bookId1))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(delete("/api/books").param("ids", ""))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void deleteBook_ReturnsNoContent() throws Exception {
         mockMvc.perform(delete("/api/books/" + bookId1))
@@ -1,23 +1,38 @@
 package com.task.books.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.books.cache.CatalogGeneration;
 import com.task.books.model.Author;
 import com.task.books.model.Book;
 import com.task.books.model.BookRating;
+import com.task.books.response.BookImportResponse;
+import com.task.books.response.BookPage;
 import com.task.books.service.BookService;
+import com.task.books.service.BookImportService;
 import com.task.books.service.BookRatingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -36,11 +51,21 @@ class BookControllerUnitTest {
     @Mock
     private BookRatingService bookRatingService;
 
+    @Mock
+    private BookImportService bookImportService;
+
+    @Mock
+    private CatalogGeneration catalogGeneration;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private BookController bookController;
 
     @BeforeEach
     public void setUp() {
+        lenient().when(catalogGeneration.etag()).thenReturn("\"7\"");
         mockMvc = MockMvcBuilders.standaloneSetup(bookController).build();
     }
 
@@ -180,16 +205,38 @@ class BookControllerUnitTest {
     @Test
     public void getBookById() throws Exception {
         Book book = new Book("Test Book", 2001, 0.0);
+        book.setVersion(3L);
         when(bookService.getBookById(1)).thenReturn(book);
 
         mockMvc.perform(get("/api/books/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"3\""))
                 .andExpect(jsonPath("$.title").value("Test Book"))
-                .andExpect(jsonPath("$.year").value(2001));
+                .andExpect(jsonPath("$.year").value(2001))
+                .andExpect(jsonPath("$.version").doesNotExist());
 
         verify(bookService).getBookById(1);
     }
 
+    @Test
+    public void getBookById_NotModifiedWithoutLoadingTheBook() throws Exception {
+        when(bookService.getBookVersion(1)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/books/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(bookService, never()).getBookById(anyInt());
+    }
+
+    @Test
+    public void getBooks_NotModifiedWhileCatalogUnchanged() throws Exception {
+        mockMvc.perform(get("/api/books/filter").header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified());
+
+        verify(bookService, never()).filterBooks(any(), any(), any(), any());
+    }
+
     @Test
     public void addBook() throws Exception {
         Book book = new Book("New Book", 2021, 0.0);
@@ -212,4 +259,77 @@ class BookControllerUnitTest {
 
         verify(bookService).deleteBook(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getBooksPage_ReturnsBooksAndCursor() throws Exception {
+        BookPage page = new BookPage(List.of(new Book("Test Book", 2001, 0.0)), "next");
+        when(bookService.filterBooksPage(null, 2001, null, null, "cursor", 1)).thenReturn(page);
+
+        mockMvc.perform(get("/api/books/filter")
+                        .param("year", "2001")
+                        .param("after", "cursor")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value("Test Book"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    public void getBooksPage_InvalidCursorReturnsBadRequest() throws Exception {
+        when(bookService.filterBooksPage(null, null, null, null, "bad", 10)).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/books/filter")
+                        .param("after", "bad")
+                        .param("limit", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamBooks_WritesJsonArray() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<List<Book>> consumer = invocation.getArgument(5);
+            consumer.accept(List.of(new Book("First", 2001, 0.0)));
+            consumer.accept(List.of(new Book("Second", 2002, 0.0)));
+            return null;
+        }).when(bookService).streamBooks(isNull(), isNull(), isNull(), isNull(), anyInt(), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/books/filter").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].title").value("First"))
+                .andExpect(jsonPath("$[1].title").value("Second"));
+
+        verify(bookService).streamBooks(isNull(), isNull(), isNull(), isNull(), anyInt(), any(Consumer.class));
+    }
+
+    @Test
+    public void importBooks_CsvBody() throws Exception {
+        when(bookImportService.importBooks(any(), eq(BookImportService.Format.CSV)))
+                .thenReturn(new BookImportResponse(2, 0, 1, 5, 400.0, List.of()));
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType("text/csv")
+                        .content("title,year,authors\nDune,1965,Frank Herbert\nDune Messiah,1969,Frank Herbert\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.authorsCreated").value(1));
+    }
+
+    @Test
+    public void importBooks_MalformedInput() throws Exception {
+        when(bookImportService.importBooks(any(), eq(BookImportService.Format.NDJSON)))
+                .thenThrow(new IllegalArgumentException("Malformed record 3, 0 books were imported before it"));
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"title\": \"Dune\", \"year\": 1965}\n{\"title\": \"Emma\", \"year\": 1815}\n{\"title\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Malformed record 3, 0 books were imported before it"));
+    }
+}
@@ -0,0 +1,172 @@
+package com.task.books.controller;
+
+import com.task.books.cache.CatalogGeneration;
+import com.task.books.event.CatalogChangedEvent;
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import com.task.books.service.BookFacetService;
+import com.task.books.service.BookRatingService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookFacetControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private CatalogGeneration catalogGeneration;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Author tolkien;
+    private Client client;
+    private Book hobbit;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        tolkien = authorRepository.save(new Author("J.R.R. Tolkien"));
+        Author herbert = authorRepository.save(new Author("Frank Herbert"));
+        Author anderson = authorRepository.save(new Author("Kevin J. Anderson"));
+        hobbit = book("The Hobbit", 1937, tolkien);
+        Book rings = book("The Lord of the Rings", 1954, tolkien);
+        book("Dune", 1965, herbert);
+        book("Dune: House Atreides", 1999, herbert, anderson);
+        client = clientRepository.save(new Client("John Doe"));
+
+        bookRatingService.rateBook(rings.getBookId(), client.getClientId(), 5);
+        // Repositories bypass the change events, so results cached by earlier tests must not be served
+        catalogGeneration.onCatalogChanged(new CatalogChangedEvent());
+    }
+
+    @Test
+    void getFacets_CountsWholeCatalog() throws Exception {
+        mockMvc.perform(get("/api/books/facets"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.years.1937").value(1))
+                .andExpect(jsonPath("$.years.1954").value(1))
+                .andExpect(jsonPath("$.years.1965").value(1))
+                .andExpect(jsonPath("$.years.1999").value(1))
+                .andExpect(jsonPath("$.authors.length()").value(3))
+                .andExpect(jsonPath("$.authors[0].name").value("Frank Herbert"))
+                .andExpect(jsonPath("$.authors[0].count").value(2))
+                .andExpect(jsonPath("$.authors[1].name").value("J.R.R. Tolkien"))
+                .andExpect(jsonPath("$.authors[1].authorId").value(tolkien.getAuthorId()))
+                .andExpect(jsonPath("$.authors[1].count").value(2))
+                .andExpect(jsonPath("$.authors[2].name").value("Kevin J. Anderson"))
+                .andExpect(jsonPath("$.authors[2].count").value(1))
+                .andExpect(jsonPath("$.ratings.0").value(3))
+                .andExpect(jsonPath("$.ratings.5").value(1));
+    }
+
+    @Test
+    void getFacets_AppliesSameFiltersAsFilterEndpoint() throws Exception {
+        mockMvc.perform(get("/api/books/facets").param("author", "TOLK"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.years.length()").value(2))
+                .andExpect(jsonPath("$.years.1937").value(1))
+                .andExpect(jsonPath("$.years.1954").value(1))
+                .andExpect(jsonPath("$.authors.length()").value(1))
+                .andExpect(jsonPath("$.authors[0].name").value("J.R.R. Tolkien"));
+
+        // Only the authors of matching books are counted, co-authors included
+        mockMvc.perform(get("/api/books/facets").param("title", "atreides"))
+                .andExpect(jsonPath("$.years.length()").value(1))
+                .andExpect(jsonPath("$.authors.length()").value(2))
+                .andExpect(jsonPath("$.ratings.0").value(1));
+
+        mockMvc.perform(get("/api/books/facets").param("rating", "4.5"))
+                .andExpect(jsonPath("$.years.length()").value(1))
+                .andExpect(jsonPath("$.years.1954").value(1))
+                .andExpect(jsonPath("$.ratings.length()").value(1));
+
+        mockMvc.perform(get("/api/books/facets").param("year", "1800"))
+                .andExpect(jsonPath("$.years").isEmpty())
+                .andExpect(jsonPath("$.authors").isEmpty())
+                .andExpect(jsonPath("$.ratings").isEmpty());
+    }
+
+    @Test
+    void getFacets_CachedUntilCatalogChanges() throws Exception {
+        double hits = cacheHits();
+        mockMvc.perform(get("/api/books/facets").param("author", "tolkien"))
+                .andExpect(jsonPath("$.ratings.0").value(1));
+        mockMvc.perform(get("/api/books/facets").param("author", "Tolkien"))
+                .andExpect(jsonPath("$.ratings.0").value(1));
+        assertEquals(hits + 1, cacheHits());
+
+        bookRatingService.rateBook(hobbit.getBookId(), client.getClientId(), 4);
+
+        mockMvc.perform(get("/api/books/facets").param("author", "tolkien"))
+                .andExpect(jsonPath("$.ratings.0").doesNotExist())
+                .andExpect(jsonPath("$.ratings.4").value(1))
+                .andExpect(jsonPath("$.ratings.5").value(1));
+        assertEquals(hits + 1, cacheHits());
+    }
+
+    @Test
+    void getFacets_ReturnsNotModifiedForCurrentEtag() throws Exception {
+        String etag = mockMvc.perform(get("/api/books/facets"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/books/facets").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        bookRatingService.rateBook(hobbit.getBookId(), client.getClientId(), 4);
+
+        mockMvc.perform(get("/api/books/facets").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private double cacheHits() {
+        FunctionCounter hits = meterRegistry.find("cache.gets")
+                .tag("cache", BookFacetService.CACHE_NAME).tag("result", "hit").functionCounter();
+        assertNotNull(hits);
+        return hits.count();
+    }
+
+    private Book book(String title, int year, Author... authors) {
+        Book book = new Book(title, year, 0.0);
+        book.setAuthors(Set.of(authors));
+        return bookRepository.save(book);
+    }
+}
@@ -0,0 +1,222 @@
+package com.task.books.controller;
+
+import com.task.books.model.*;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Serializing a page of books must cost the same number of statements no matter how many books it holds
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@AutoConfigureMockMvc
+class BookQueryCountIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Author> authors;
+    private List<Client> clients;
+    private Integer firstBookId;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        authors = authorRepository.saveAll(List.of(new Author("Author A"), new Author("Author B"), new Author("Author C")));
+        clients = clientRepository.saveAll(List.of(new Client("Client A"), new Client("Client B"), new Client("Client C")));
+        firstBookId = addBooks(10).get(0);
+    }
+
+    @Test
+    void filterBooks_UsesConstantNumberOfStatements() throws Exception {
+        long smallCatalog = countStatements(get("/api/books/filter"));
+        addBooks(40);
+        long largeCatalog = countStatements(get("/api/books/filter"));
+
+        // books, then one batch each for authors and ratings with their clients
+        assertEquals(smallCatalog, largeCatalog);
+        assertEquals(3, largeCatalog);
+    }
+
+    @Test
+    void filterBooks_ServesAuthorsFromSecondLevelCache() throws Exception {
+        assertEquals(3, countStatements(get("/api/books/filter")));
+
+        // books and ratings, the author lists and the authors come from the second-level cache
+        assertEquals(2, countStatements(get("/api/books/filter")));
+    }
+
+    @Test
+    void filterBooksPage_UsesConstantNumberOfStatements() throws Exception {
+        long smallPage = countStatements(get("/api/books/filter").param("limit", "5"));
+        addBooks(40);
+        long largePage = countStatements(get("/api/books/filter").param("limit", "45"));
+
+        assertEquals(smallPage, largePage);
+        assertEquals(3, largePage);
+    }
+
+    @Test
+    void getBookById_UsesSingleStatement() throws Exception {
+        assertEquals(1, countStatements(get("/api/books/" + firstBookId)));
+    }
+
+    @Test
+    void getBooksByIds_UsesConstantNumberOfStatements() throws Exception {
+        List<Integer> bookIds = addBooks(40);
+        String ids = joined(bookIds);
+
+        // one IN query, then one batch each for authors and ratings with their clients
+        assertEquals(3, countStatements(get("/api/books").param("ids", ids)));
+        // every book is cached now
+        assertEquals(0, countStatements(get("/api/books").param("ids", ids)));
+    }
+
+    @Test
+    void deleteBook_UsesConstantNumberOfStatements() throws Exception {
+        Integer popularBookId = addBooks(1).get(0);
+        Book popularBook = bookRepository.findById(popularBookId).orElseThrow();
+        List<BookRating> ratings = new ArrayList<>();
+        for (Client client : clientRepository.saveAll(clients(50))) {
+            ratings.add(new BookRating(new BookRatingKey(popularBookId, client.getClientId()), popularBook, client, 3));
+        }
+        bookRatingRepository.saveAll(ratings);
+
+        long fewRatings = countDatabaseStatements(delete("/api/books/" + firstBookId));
+        long manyRatings = countDatabaseStatements(delete("/api/books/" + popularBookId));
+
+        // one delete each for ratings, author links and the book, then the leaderboard reads the change
+        // and the catalog generation is advanced
+        assertEquals(fewRatings, manyRatings);
+        assertEquals(5, manyRatings);
+        assertFalse(bookRepository.existsById(popularBookId));
+        // the other nine books keep their ratings
+        assertEquals(9 * clients.size(), bookRatingRepository.count());
+    }
+
+    @Test
+    void deleteBooks_UsesConstantNumberOfStatements() throws Exception {
+        List<Integer> bookIds = addBooks(40);
+
+        long fewBooks = countDatabaseStatements(delete("/api/books").param("ids", joined(bookIds.subList(0, 5))));
+        long manyBooks = countDatabaseStatements(delete("/api/books").param("ids", joined(bookIds.subList(5, 40))));
+
+        // existence check and the three deletes, then the leaderboard reads the change
+        // and the catalog generation is advanced
+        assertEquals(fewBooks, manyBooks);
+        assertEquals(6, manyBooks);
+        assertEquals(10, bookRepository.count());
+    }
+
+    @Test
+    void rateBook_UsesConstantNumberOfStatements() throws Exception {
+        long statements = countStatements(post("/api/books/rate/" + firstBookId)
+                .contentType("application/json")
+                .content("{\"clientId\": " + clients.get(0).getClientId() + ", \"rating\": 2}"));
+
+        // existence checks, rating upsert, aggregate update, reload and one batch each for authors and ratings
+        assertTrue(statements <= 9, "statements: " + statements);
+    }
+
+    private long countStatements(RequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn();
+        assertFalse(result.getResponse().getContentAsString().isEmpty());
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Counted by the database, so statements sent past Hibernate over JDBC are included
+    private long countDatabaseStatements(RequestBuilder request) throws Exception {
+        jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+        try {
+            mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+            return jdbcTemplate.queryForObject("""
+                    SELECT COALESCE(SUM(EXECUTION_COUNT), 0) FROM INFORMATION_SCHEMA.QUERY_STATISTICS
+                    WHERE SQL_STATEMENT <> 'COMMIT' AND SQL_STATEMENT NOT LIKE '%QUERY_STATISTICS%'
+                    """, Long.class);
+        } finally {
+            // Disabling also clears the collected statistics
+            jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        }
+    }
+
+    private static String joined(List<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private static List<Client> clients(int count) {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            clients.add(new Client("Rating Client " + i));
+        }
+        return clients;
+    }
+
+    private List<Integer> addBooks(int count) {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Book book = new Book("Counted Book " + i, 2000 + i % 5, 0.0);
+            book.setAuthors(Set.of(authors.get(i % authors.size()), authors.get((i + 1) % authors.size())));
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+
+        List<BookRating> ratings = new ArrayList<>();
+        for (Book book : books) {
+            for (Client client : clients) {
+                ratings.add(new BookRating(new BookRatingKey(book.getBookId(), client.getClientId()), book, client, 1 + book.getBookId() % 5));
+            }
+        }
+        bookRatingRepository.saveAll(ratings);
+        return books.stream().map(Book::getBookId).toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.task.books.controller;
+
+import com.task.books.model.*;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import com.task.books.service.BookRatingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReactiveBookControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+    @Autowired
+    private BookRatingService bookRatingService;
+
+    private Integer bookId1;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        Author author = authorRepository.save(new Author("Alice Smith"));
+
+        Book testBook = new Book("Reactive Test", 2022, 0.0);
+        testBook.setAuthors(Set.of(author));
+        Book testBook2 = new Book("Reactive Test2", 2023, 0.0);
+        bookRepository.saveAll(List.of(testBook, testBook2));
+        bookId1 = testBook.getBookId();
+
+        Client testClient = clientRepository.save(new Client("John Doe"));
+        bookRatingRepository.saveAll(List.of(
+                new BookRating(new BookRatingKey(testBook.getBookId(), testClient.getClientId()), testBook, testClient, 5),
+                new BookRating(new BookRatingKey(testBook2.getBookId(), testClient.getClientId()), testBook2, testClient, 3)));
+        bookRatingService.rebuildRatingAggregates();
+    }
+
+    @Test
+    public void getBooks_StreamsNewlineDelimitedJson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reactive/books/filter")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().filter(line -> !line.isBlank()).toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"title\":\"Reactive Test\""));
+        assertTrue(lines.get(0).contains("\"name\":\"Alice Smith\""));
+        assertTrue(lines.get(1).contains("\"rating\":3"));
+    }
+
+    @Test
+    public void getBooks_FilterByRatingAsJsonArray() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reactive/books/filter")
+                        .param("rating", "4")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Reactive Test"))
+                .andExpect(jsonPath("$[0].avgRating").value(5.0));
+    }
+
+    @Test
+    public void getBookById_Success() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reactive/books/{id}", bookId1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Reactive Test"))
+                .andExpect(jsonPath("$.authors[0].name").value("Alice Smith"))
+                .andExpect(jsonPath("$.ratings[0].client.name").value("John Doe"))
+                .andExpect(jsonPath("$.ratingCount").value(1));
+    }
+}
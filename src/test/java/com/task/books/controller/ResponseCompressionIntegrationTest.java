@@ -0,0 +1,98 @@
+package com.task.books.controller;
+
+import com.task.books.model.Book;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compression is applied by Tomcat, so only a real server shows whether a response is compressed.
+// The settings are those of the main application.properties, which the test one replaces.
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.compression.enabled=true",
+        "server.compression.mime-types=application/json,application/x-ndjson,application/cbor,application/x-jackson-smile",
+        "server.compression.min-response-size=2KB"})
+class ResponseCompressionIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            books.add(new Book("Compressed Book " + i, 2000 + i % 20, 0.0));
+        }
+        bookRepository.saveAll(books);
+    }
+
+    @Test
+    void filterResults_AreCompressedAndTaggedWeakly() throws Exception {
+        for (String accept : List.of("application/json", "application/cbor", "application/x-jackson-smile")) {
+            HttpResponse<byte[]> response = get("/api/books/filter", accept, null);
+
+            assertEquals(200, response.statusCode(), accept);
+            assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null), accept);
+            assertTrue(response.headers().firstValue("ETag").orElseThrow().startsWith("W/\""), accept);
+            assertTrue(variesByAccept(response), accept);
+        }
+    }
+
+    @Test
+    void filterResults_RevalidateWithTheWeakTag() throws Exception {
+        String etag = get("/api/books/filter", "application/json", null).headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> response = get("/api/books/filter", "application/cbor", etag);
+
+        assertEquals(304, response.statusCode());
+        assertTrue(variesByAccept(response));
+    }
+
+    // Tomcat merges its own Accept-Encoding into the header and lowercases it
+    private static boolean variesByAccept(HttpResponse<?> response) {
+        return response.headers().allValues("Vary").stream()
+                .flatMap(vary -> Arrays.stream(vary.split(",")))
+                .anyMatch(header -> header.trim().equalsIgnoreCase("Accept"));
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", accept)
+                .header("Accept-Encoding", "gzip");
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,59 @@
+package com.task.books.data;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles({"test", "generator"})
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:generator;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "books.generator.books=2000",
+        "books.generator.authors=200",
+        "books.generator.clients=500",
+        "books.generator.ratings=20000",
+        "books.generator.batch-size=500",
+        "books.generator.threads=4"})
+class CatalogGeneratorIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void generator_LoadsConfiguredCatalog() {
+        assertEquals(2000, count("SELECT COUNT(*) FROM books"));
+        assertEquals(200, count("SELECT COUNT(*) FROM authors"));
+        assertEquals(500, count("SELECT COUNT(*) FROM clients"));
+        assertEquals(0, count("SELECT COUNT(*) FROM books b WHERE NOT EXISTS (SELECT 1 FROM book_author ba WHERE ba.book_id = b.book_id)"));
+
+        // Duplicate pairs are dropped, so there are fewer ratings than draws but still most of them
+        long ratings = count("SELECT COUNT(*) FROM book_rating");
+        assertTrue(ratings > 10000 && ratings <= 20000, "ratings: " + ratings);
+        assertEquals(0, count("SELECT COUNT(*) FROM book_rating WHERE rating NOT BETWEEN 1 AND 5"));
+    }
+
+    @Test
+    void generator_MaintainsRatingAggregates() {
+        assertEquals(count("SELECT COUNT(*) FROM book_rating"), count("SELECT SUM(rating_count) FROM books"));
+        assertEquals(count("SELECT SUM(rating) FROM book_rating"), count("SELECT SUM(rating_sum) FROM books"));
+    }
+
+    @Test
+    void generator_SkewsRatingsTowardsPopularBooks() {
+        List<Long> perBook = jdbcTemplate.queryForList("SELECT rating_count FROM books ORDER BY rating_count DESC", Long.class);
+        long total = perBook.stream().mapToLong(Long::longValue).sum();
+        long topTenPercent = perBook.subList(0, perBook.size() / 10).stream().mapToLong(Long::longValue).sum();
+
+        assertTrue(topTenPercent * 2 > total, "top 10% of books hold " + topTenPercent + " of " + total + " ratings");
+        assertTrue(perBook.get(perBook.size() / 2) < perBook.get(0) / 10);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
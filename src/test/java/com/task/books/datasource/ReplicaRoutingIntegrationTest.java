@@ -0,0 +1,209 @@
+package com.task.books.datasource;
+
+import com.task.books.metrics.BookMetricsEndpoint;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Two embedded databases stand in for the primary and a replica that has not caught up yet
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "books.datasource.replica.url=jdbc:h2:mem:replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "books.datasource.replica.read-your-writes-window=1m"})
+@AutoConfigureMockMvc
+class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private BookMetricsEndpoint bookMetricsEndpoint;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        // Hibernate only creates the schema on the primary, the replica gets a copy of it
+        replica.execute("DROP ALL OBJECTS");
+        for (String statement : primary.queryForList("SCRIPT NODATA", String.class)) {
+            if (statement.startsWith("CREATE") && !statement.startsWith("CREATE USER")) {
+                replica.execute(statement);
+            }
+        }
+        primary.update("INSERT INTO books (title, published_year, average_rating, rating_sum, rating_count) VALUES ('On Primary', 2001, 0, 0, 0)");
+        replica.update("INSERT INTO books (title, published_year, average_rating, rating_sum, rating_count) VALUES ('On Replica', 2001, 0, 0, 0)");
+    }
+
+    @Test
+    void reads_AreServedByReplica() throws Exception {
+        mockMvc.perform(get("/api/books/filter"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("On Replica"));
+
+        mockMvc.perform(get("/api/books/filter").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value("On Replica"));
+    }
+
+    @Test
+    void writes_GoToPrimary() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Written\", \"year\": 2024}"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, primary.queryForObject("SELECT COUNT(*) FROM books WHERE title = 'Written'", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM books WHERE title = 'Written'", Integer.class));
+    }
+
+    @Test
+    void readsAfterWrite_StayOnPrimaryForThatClient() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "writer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Written\", \"year\": 2024}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/filter").param("title", "written")
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "writer"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(get("/api/books/filter").param("title", "written")
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "reader"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void cachedBooks_AreLoadedFromPrimary() throws Exception {
+        Integer bookId = sameBookOnBothDatabases();
+
+        // A stale copy read from the replica would stay cached after the invalidation of the write
+        mockMvc.perform(get("/api/books/" + bookId)
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "reader"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("On Primary"));
+        mockMvc.perform(get("/api/books").param("ids", String.valueOf(bookId))
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "reader"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value("On Primary"));
+    }
+
+    @Test
+    void bookVersion_IsReadFromPrimary() throws Exception {
+        Integer bookId = sameBookOnBothDatabases();
+        primary.update("UPDATE books SET version = 3 WHERE book_id = ?", bookId);
+
+        mockMvc.perform(get("/api/books/" + bookId)
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "reader")
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void filterResults_AreTaggedWithTheGenerationOfTheReplica() throws Exception {
+        primary.update("UPDATE catalog_generation SET generation = 10");
+        replica.update("INSERT INTO catalog_generation (slot, generation) VALUES (0, 4)");
+
+        // The replica has not seen the changes after generation 4, its results must not carry a newer tag
+        mockMvc.perform(get("/api/books/filter")
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "reader"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"4\""))
+                .andExpect(jsonPath("$[0].title").value("On Replica"));
+        mockMvc.perform(get("/api/books/facets")
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "reader"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"4\""));
+    }
+
+    @Test
+    void streamedReadsAfterWrite_StayOnPrimary() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "writer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Streamed\", \"year\": 2024}"))
+                .andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(get("/api/books/filter").param("title", "streamed").param("stream", "true")
+                        .header(ReadYourWritesFilter.CLIENT_HEADER, "writer"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Streamed"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pools_ReportMetricsSeparately() throws Exception {
+        assertNotNull(meterRegistry.find("hikaricp.connections.max").tag("pool", "primary").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.max").tag("pool", "replica").gauge());
+
+        mockMvc.perform(get("/api/books/filter").header("X-Client-Id", "reader")).andExpect(status().isOk());
+
+        Map<String, Object> pools = (Map<String, Object>) bookMetricsEndpoint.summary().get("connectionPool");
+        assertEquals(Set.of("primary", "replica"), pools.keySet());
+        Map<String, Map<String, Object>> replicaPool = (Map<String, Map<String, Object>>) pools.get("replica");
+        assertTrue((Long) replicaPool.get("acquire").get("count") > 0);
+    }
+
+    // The book of the primary under the same id on the replica, with the replica's title
+    private Integer sameBookOnBothDatabases() {
+        Integer bookId = primary.queryForObject("SELECT book_id FROM books WHERE title = 'On Primary'", Integer.class);
+        replica.update("UPDATE books SET book_id = ? WHERE title = 'On Replica'", bookId);
+        return bookId;
+    }
+}
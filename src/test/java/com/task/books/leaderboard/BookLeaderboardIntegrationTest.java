@@ -0,0 +1,203 @@
+package com.task.books.leaderboard;
+
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import com.task.books.service.BookRatingService;
+import com.task.books.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// A leaderboard of two books keeps four per scope, small enough to exercise eviction and refills
+@ActiveProfiles("test")
+@SpringBootTest(properties = "books.leaderboard.size=2")
+@AutoConfigureMockMvc
+class BookLeaderboardIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookLeaderboard bookLeaderboard;
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Author tolkien;
+    private Author herbert;
+    private Client client1;
+    private Client client2;
+    private Book hobbit;
+    private Book rings;
+    private Book silmarillion;
+    private Book dune;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        tolkien = authorRepository.save(new Author("J.R.R. Tolkien"));
+        herbert = authorRepository.save(new Author("Frank Herbert"));
+        hobbit = book("The Hobbit", 1937, tolkien);
+        rings = book("The Lord of the Rings", 1954, tolkien);
+        silmarillion = book("The Silmarillion", 1977, tolkien);
+        dune = book("Dune", 1965, herbert);
+        client1 = clientRepository.save(new Client("John Doe"));
+        client2 = clientRepository.save(new Client("Jane Smith"));
+
+        bookRatingService.rateBook(hobbit.getBookId(), client1.getClientId(), 4);
+        bookRatingService.rateBook(rings.getBookId(), client1.getClientId(), 5);
+        bookRatingService.rateBook(dune.getBookId(), client1.getClientId(), 3);
+        // Repositories bypass the change events, so start from what is stored
+        bookLeaderboard.rebuild();
+    }
+
+    @Test
+    void topBooks_RankedByAverageWithoutUnratedBooks() throws Exception {
+        mockMvc.perform(get("/api/books/top").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].title").value("The Lord of the Rings"))
+                .andExpect(jsonPath("$[0].avgRating").value(5.0))
+                .andExpect(jsonPath("$[0].ratingCount").value(1))
+                .andExpect(jsonPath("$[1].title").value("The Hobbit"));
+
+        assertEquals(List.of(rings.getBookId(), hobbit.getBookId()), ids(bookLeaderboard.topOfAuthor(tolkien.getAuthorId(), 2)));
+        assertEquals(List.of(dune.getBookId()), ids(bookLeaderboard.topOfYear(1965, 2)));
+        assertTrue(bookLeaderboard.topOfYear(1977, 2).isEmpty());
+    }
+
+    @Test
+    void topBooks_RejectsInvalidQueries() throws Exception {
+        mockMvc.perform(get("/api/books/top").param("limit", "3"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Limit must be between 1 and 2"));
+        mockMvc.perform(get("/api/books/top").param("year", "1937").param("authorId", "1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Filter by either year or authorId"));
+    }
+
+    @Test
+    void topOfAuthor_UnknownAuthorIsNotFound() throws Exception {
+        Author unrated = authorRepository.save(new Author("Unrated Author"));
+        int unknownId = unrated.getAuthorId() + 1000;
+
+        mockMvc.perform(get("/api/books/top").param("limit", "2").param("authorId", String.valueOf(unknownId)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Author not found"));
+        mockMvc.perform(get("/api/books/top").param("limit", "2").param("authorId", String.valueOf(unrated.getAuthorId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void deletingCoAuthoredBook_UpdatesTheScopeOfEveryAuthor() {
+        Book omnibus = new Book("Omnibus", 1990, 0.0);
+        omnibus.setAuthors(Set.of(tolkien, herbert));
+        omnibus = bookRepository.save(omnibus);
+        bookRatingService.rateBook(omnibus.getBookId(), client1.getClientId(), 5);
+        bookRatingService.rateBook(omnibus.getBookId(), client2.getClientId(), 5);
+        assertEquals(omnibus.getBookId(), bookLeaderboard.topOfAuthor(tolkien.getAuthorId(), 1).get(0).bookId());
+        assertEquals(omnibus.getBookId(), bookLeaderboard.topOfAuthor(herbert.getAuthorId(), 1).get(0).bookId());
+
+        bookService.deleteBook(omnibus.getBookId());
+
+        assertEquals(List.of(rings.getBookId(), hobbit.getBookId()), ids(bookLeaderboard.topOfAuthor(tolkien.getAuthorId(), 2)));
+        assertEquals(List.of(dune.getBookId()), ids(bookLeaderboard.topOfAuthor(herbert.getAuthorId(), 2)));
+    }
+
+    @Test
+    void rating_MovesBooksInEveryScope() {
+        bookLeaderboard.topOfAuthor(tolkien.getAuthorId(), 2);
+
+        bookRatingService.rateBook(silmarillion.getBookId(), client1.getClientId(), 5);
+        bookRatingService.rateBook(silmarillion.getBookId(), client2.getClientId(), 5);
+        bookRatingService.rateBook(rings.getBookId(), client2.getClientId(), 1);
+
+        assertEquals(List.of(silmarillion.getBookId(), hobbit.getBookId()), ids(bookLeaderboard.top(2)));
+        assertEquals(List.of(silmarillion.getBookId(), hobbit.getBookId()), ids(bookLeaderboard.topOfAuthor(tolkien.getAuthorId(), 2)));
+        assertEquals(List.of(silmarillion.getBookId()), ids(bookLeaderboard.topOfYear(1977, 2)));
+        assertEquals(3.0, bookLeaderboard.topOfYear(1954, 1).get(0).avgRating());
+    }
+
+    @Test
+    void updateAndDelete_AreReflectedInEveryScope() {
+        bookLeaderboard.topOfAuthor(tolkien.getAuthorId(), 2);
+
+        bookService.updateBook(hobbit.getBookId(), new Book("The Hobbit", 1938, 0.0));
+        bookService.deleteBook(rings.getBookId());
+
+        assertEquals(List.of(hobbit.getBookId(), dune.getBookId()), ids(bookLeaderboard.top(2)));
+        assertTrue(bookLeaderboard.topOfYear(1937, 2).isEmpty());
+        assertEquals(List.of(hobbit.getBookId()), ids(bookLeaderboard.topOfYear(1938, 2)));
+        assertEquals(List.of(hobbit.getBookId()), ids(bookLeaderboard.topOfAuthor(tolkien.getAuthorId(), 2)));
+    }
+
+    @Test
+    void scopeBeyondCapacity_IsRefilledFromStoredAggregates() {
+        List<Book> books = new ArrayList<>();
+        for (int rating = 1; rating <= 5; rating++) {
+            Book book = book("Book rated " + rating, 2000, tolkien);
+            bookRatingService.rateBook(book.getBookId(), client1.getClientId(), rating);
+            books.add(book);
+        }
+
+        // Only four books of 2000 are retained, removing three of them leaves less than the served two
+        for (int i = 4; i >= 2; i--) {
+            bookService.deleteBook(books.get(i).getBookId());
+        }
+
+        assertEquals(List.of(books.get(1).getBookId(), books.get(0).getBookId()), ids(bookLeaderboard.topOfYear(2000, 2)));
+    }
+
+    @Test
+    void rebuild_ReadsOnlyStoredAggregates() {
+        jdbcTemplate.update("DELETE FROM book_rating");
+
+        bookLeaderboard.rebuild();
+
+        assertEquals(List.of(rings.getBookId(), hobbit.getBookId()), ids(bookLeaderboard.top(2)));
+    }
+
+    private Book book(String title, int year, Author author) {
+        Book book = new Book(title, year, 0.0);
+        book.setAuthors(Set.of(author));
+        return bookRepository.save(book);
+    }
+
+    private static List<Integer> ids(List<LeaderboardEntry> entries) {
+        return entries.stream().map(LeaderboardEntry::bookId).toList();
+    }
+}
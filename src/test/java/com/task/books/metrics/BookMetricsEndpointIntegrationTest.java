@@ -0,0 +1,92 @@
+package com.task.books.metrics;
+
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN",
+        "management.endpoints.web.exposure.include=health,metrics,prometheus,bookmetrics",
+        "management.observations.annotations.enabled=true",
+        "management.metrics.distribution.percentiles-histogram.http.server.requests=true",
+        "management.metrics.distribution.percentiles.http.server.requests=0.5,0.95,0.99",
+        "management.metrics.distribution.percentiles.books=0.5,0.95,0.99"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class BookMetricsEndpointIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    private Integer bookId;
+    private Integer clientId;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+
+        bookId = bookRepository.save(new Book("Dune", 1965, 0.0)).getBookId();
+        clientId = clientRepository.save(new Client("Client A")).getClientId();
+    }
+
+    @Test
+    void prometheus_ExposesHotPathMetrics() throws Exception {
+        mockMvc.perform(get("/api/books/filter").param("title", "dune")).andExpect(status().isOk());
+        mockMvc.perform(post("/api/books/rate/{id}", bookId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"clientId\": " + clientId + ", \"rating\": 4}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+                .andExpect(content().string(containsString("uri=\"/api/books/filter\"")))
+                .andExpect(content().string(containsString("books_filter_seconds_count")))
+                .andExpect(content().string(containsString("books_rate_seconds_count")))
+                .andExpect(content().string(containsString("hibernate_query_executions_total")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds")));
+    }
+
+    @Test
+    void bookMetrics_SummarizesEndpointsServiceAndPool() throws Exception {
+        mockMvc.perform(get("/api/books/filter")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/books/filter")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/bookmetrics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.endpoints['GET /api/books/filter 200'].count").value(greaterThanOrEqualTo(2)))
+                .andExpect(jsonPath("$.endpoints['GET /api/books/filter 200'].p95Ms").isNumber())
+                .andExpect(jsonPath("$.service.filterBooks.count").value(greaterThanOrEqualTo(2)))
+                .andExpect(jsonPath("$.service.filterBooks.p99Ms").isNumber())
+                .andExpect(jsonPath("$.hibernate.statements").value(greaterThan(0.0)))
+                .andExpect(jsonPath("$.connectionPool.primary.acquire.count").value(greaterThan(0)));
+    }
+}
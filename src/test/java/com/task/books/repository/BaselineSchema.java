@@ -0,0 +1,31 @@
+package com.task.books.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// The tables as Hibernate created them at the baseline commit, before the migrations, with two rated books:
+// "Dune" (book 1) rated 5 and 4 by clients 1 and 2, "Emma" (book 2) unrated
+final class BaselineSchema {
+
+    private BaselineSchema() {
+    }
+
+    static void create(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE authors (author_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(255) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE clients (client_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(255) NOT NULL)");
+        jdbcTemplate.execute("""
+                CREATE TABLE books (book_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    average_rating DOUBLE PRECISION DEFAULT 0.0 NOT NULL, published_year INTEGER NOT NULL, title VARCHAR(255) NOT NULL)
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE book_author (book_id INTEGER NOT NULL REFERENCES books (book_id),
+                    author_id INTEGER NOT NULL REFERENCES authors (author_id), PRIMARY KEY (book_id, author_id))
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE book_rating (rating INTEGER NOT NULL, book_id INTEGER NOT NULL REFERENCES books (book_id),
+                    client_id INTEGER NOT NULL REFERENCES clients (client_id), PRIMARY KEY (book_id, client_id))
+                """);
+        jdbcTemplate.update("INSERT INTO clients (name) VALUES ('John Doe'), ('Jane Smith')");
+        jdbcTemplate.update("INSERT INTO books (title, published_year, average_rating) VALUES ('Dune', 1965, 4.5), ('Emma', 1815, 0.0)");
+        jdbcTemplate.update("INSERT INTO book_rating (book_id, client_id, rating) VALUES (1, 1, 5), (1, 2, 4)");
+    }
+}
@@ -0,0 +1,51 @@
+package com.task.books.repository;
+
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.service.BookRatingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Starts on a catalog rated before the migrations, upgraded by them with the settings of the application
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.flyway.locations=classpath:db/migration/common,classpath:db/migration/{vendor}",
+        "spring.flyway.baseline-on-migrate=true",
+        "spring.flyway.baseline-version=0",
+        "spring.jpa.hibernate.ddl-auto=validate"})
+class BaselineUpgradeIntegrationTest {
+
+    private static final String URL = "jdbc:h2:mem:upgraded;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private ClientRepository clientRepository;
+
+    // Runs before the context starts, so the migrations find the old tables
+    @DynamicPropertySource
+    static void baselineDatabase(DynamicPropertyRegistry registry) {
+        BaselineSchema.create(new JdbcTemplate(new DriverManagerDataSource(URL, "sa", "sa")));
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    void newRating_KeepsTheRatingsGivenBeforeTheUpgrade() {
+        Client client = clientRepository.save(new Client("New Client"));
+
+        Book rated = bookRatingService.rateBook(1, client.getClientId(), 3);
+
+        assertEquals(3L, rated.getRatingCount());
+        assertEquals(12L, rated.getRatingSum());
+        assertEquals(4.0, rated.getAvgRating());
+    }
+}
@@ -0,0 +1,157 @@
+package com.task.books.repository;
+
+import com.task.books.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DataJpaTest
+class BookSpecificationsTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    public void setUp() {
+        Author rowling = new Author("J.K. Rowling");
+        Author tolkien = new Author("J.R.R. Tolkien");
+        Author martin = new Author("George R.R. Martin");
+        Author underscore = new Author("100%_Author");
+        entityManager.persist(rowling);
+        entityManager.persist(tolkien);
+        entityManager.persist(martin);
+        entityManager.persist(underscore);
+
+        Book book1 = new Book("Harry Potter and the Sorcerer's Stone", 1997, 0.0);
+        book1.setAuthors(Set.of(rowling));
+        Book book2 = new Book("Harry Potter and the Chamber of Secrets", 1998, 0.0);
+        book2.setAuthors(Set.of(rowling));
+        Book book3 = new Book("The Lord of the Rings", 1954, 0.0);
+        book3.setAuthors(Set.of(tolkien));
+        Book book4 = new Book("The Hobbit", 1937, 0.0);
+        book4.setAuthors(Set.of(tolkien, martin));
+        Book book5 = new Book("A Song of Ice and Fire", 1996, 0.0);
+        book5.setAuthors(Set.of(martin));
+        Book book6 = new Book("100% Pure_Fiction", 1997, 0.0);
+        book6.setAuthors(Set.of(underscore));
+        Book book7 = new Book("Anonymous Notes", 1954, 0.0);
+        for (Book book : List.of(book1, book2, book3, book4, book5, book6, book7)) {
+            entityManager.persist(book);
+        }
+
+        Client client1 = new Client("John Doe");
+        Client client2 = new Client("Jane Smith");
+        entityManager.persist(client1);
+        entityManager.persist(client2);
+
+        rate(book1, client1, 5);
+        rate(book1, client2, 4);
+        rate(book3, client1, 3);
+        rate(book4, client1, 4);
+        rate(book4, client2, 5);
+        rate(book5, client2, 2);
+        rate(book6, client1, 1);
+
+        entityManager.flush();
+        bookRepository.rebuildRatingAggregates();
+        entityManager.clear();
+    }
+
+    @Test
+    public void filterByDefaultReturnsAllBooksOrderedById() {
+        assertMatchesInMemoryFilter(null, null, null, null, 7);
+    }
+
+    @Test
+    public void filterByTitleIsCaseInsensitiveSubstring() {
+        assertMatchesInMemoryFilter("harry POTTER", null, null, null, 2);
+    }
+
+    @Test
+    public void filterByTitleTreatsWildcardsLiterally() {
+        assertMatchesInMemoryFilter("0% pure_", null, null, null, 1);
+        assertMatchesInMemoryFilter("_", null, null, null, 1);
+    }
+
+    @Test
+    public void filterByYear() {
+        assertMatchesInMemoryFilter(null, 1954, null, null, 2);
+    }
+
+    @Test
+    public void filterByAuthorReturnsEachBookOnce() {
+        assertMatchesInMemoryFilter(null, null, "r.r.", null, 3);
+    }
+
+    @Test
+    public void filterByRatingTreatsUnratedBooksAsZero() {
+        assertMatchesInMemoryFilter(null, null, null, 4.5, 2);
+        assertMatchesInMemoryFilter(null, null, null, 0.0, 7);
+    }
+
+    @Test
+    public void filterByEveryFilter() {
+        assertMatchesInMemoryFilter("harry", 1997, "rowling", 4.5, 1);
+    }
+
+    @Test
+    public void filterByMixedFiltersTitleAndRating() {
+        assertMatchesInMemoryFilter("the", null, null, 3.0, 3);
+    }
+
+    @Test
+    public void emptyStringsAreIgnored() {
+        assertMatchesInMemoryFilter("", null, "", null, 7);
+    }
+
+    private void assertMatchesInMemoryFilter(String title, Integer year, String author, Double rating, int expectedSize) {
+        List<Integer> expected = inMemoryFilter(bookRepository.findAll(), title, year, author, rating).stream()
+                .map(Book::getBookId)
+                .sorted()
+                .collect(Collectors.toList());
+
+        List<Integer> actual = bookRepository.findAll(BookSpecifications.matching(title, year, author, rating), Sort.by("bookId")).stream()
+                .map(Book::getBookId)
+                .collect(Collectors.toList());
+
+        assertEquals(expectedSize, actual.size());
+        assertEquals(expected, actual);
+    }
+
+    // The filtering previously done by BookService, kept as the reference behaviour
+    private static List<Book> inMemoryFilter(List<Book> books, String title, Integer year, String author, Double rating) {
+        if (title != null && !title.isEmpty()) {
+            books = books.stream().filter(book -> book.getTitle().toLowerCase().contains(title.toLowerCase())).collect(Collectors.toList());
+        }
+        if (year != null) {
+            books = books.stream().filter(book -> book.getYear().equals(year)).collect(Collectors.toList());
+        }
+        if (author != null && !author.isEmpty()) {
+            books = books.stream().filter(book -> book.getAuthors().stream().anyMatch(a -> a.getName().toLowerCase().contains(author.toLowerCase()))).collect(Collectors.toList());
+        }
+        if (rating != null) {
+            books = books.stream().filter(book -> book.getRatings().stream().mapToDouble(BookRating::getRating).average().orElse(0) >= rating).collect(Collectors.toList());
+        }
+        books.sort(Comparator.comparing(Book::getBookId));
+        return books;
+    }
+
+    private void rate(Book book, Client client, int rating) {
+        entityManager.persist(new BookRating(new BookRatingKey(book.getBookId(), client.getClientId()), book, client, rating));
+    }
+}
@@ -0,0 +1,93 @@
+package com.task.books.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Plans of the main filter and join paths on the schema of V1 alone and after the index migration
+class FilterQueryPlanTest {
+
+    private static final String URL = "jdbc:h2:mem:plans;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    // Query and the index that must serve it once the migrations ran
+    private static final Map<String, String> FILTER_PATHS = Map.of(
+            "SELECT book_id FROM books WHERE published_year = 1954", "IDX_BOOKS_PUBLISHED_YEAR",
+            "SELECT book_id FROM books WHERE average_rating >= 4.5", "IDX_BOOKS_AVERAGE_RATING");
+
+    // H2 indexes foreign keys on its own and may pick either index, PostgreSQL does not,
+    // so there these lookups scan the link tables without the migration
+    private static final Map<String, String> JOIN_PATHS = Map.of(
+            "SELECT book_id FROM book_author WHERE author_id = 1", "IDX_BOOK_AUTHOR_AUTHOR_ID",
+            "SELECT book_id FROM book_rating WHERE client_id = 1", "IDX_BOOK_RATING_CLIENT_ID");
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "sa");
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void filterPaths_ScanTablesBeforeAndUseIndexesAfterMigration() throws SQLException {
+        migrate("1");
+        for (String query : FILTER_PATHS.keySet()) {
+            String plan = plan(query);
+            assertTrue(plan.contains("tableScan"), plan);
+        }
+
+        migrate(null);
+        for (Map.Entry<String, String> path : FILTER_PATHS.entrySet()) {
+            String plan = plan(path.getKey());
+            assertTrue(plan.contains(path.getValue()), plan);
+            assertFalse(plan.contains("tableScan"), plan);
+        }
+        for (Map.Entry<String, String> path : JOIN_PATHS.entrySet()) {
+            assertTrue(indexExists(path.getValue()), path.getValue());
+            String plan = plan(path.getKey());
+            assertFalse(plan.contains("tableScan"), plan);
+        }
+    }
+
+    private static void migrate(String target) {
+        Flyway.configure()
+                .dataSource(URL, "sa", "sa")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .target(target == null ? "latest" : target)
+                .failOnMissingLocations(false)
+                .load()
+                .migrate();
+    }
+
+    private boolean indexExists(String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = ?")) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1) > 0;
+            }
+        }
+    }
+
+    private String plan(String query) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + query)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.task.books.repository;
+
+import com.task.books.model.*;
+import com.task.books.service.BookRatingService;
+import com.task.books.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The reactive read path must return exactly what the JPA filter returns
+@ActiveProfiles("test")
+@SpringBootTest
+class ReactiveBookRepositoryIntegrationTest {
+
+    @Autowired
+    private ReactiveBookRepository reactiveBookRepository;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        List<Author> authors = authorRepository.saveAll(List.of(new Author("Frank Herbert"), new Author("Ursula K. Le Guin"), new Author("100% Anonymous")));
+        List<Client> clients = clientRepository.saveAll(List.of(new Client("Client A"), new Client("Client B")));
+        String[] titles = {"Dune", "Dune Messiah", "The Left Hand of Darkness", "A Wizard of Earthsea", "100% Fiction", "Under_Score"};
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < titles.length; i++) {
+            Book book = new Book(titles[i], 1965 + i % 3, 0.0);
+            book.setAuthors(Set.of(authors.get(i % authors.size())));
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+        List<BookRating> ratings = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            for (int c = 0; c <= i % 2; c++) {
+                Book book = books.get(i);
+                Client client = clients.get(c);
+                ratings.add(new BookRating(new BookRatingKey(book.getBookId(), client.getClientId()), book, client, 1 + (i + c) % 5));
+            }
+        }
+        bookRatingRepository.saveAll(ratings);
+        bookRatingService.rebuildRatingAggregates();
+    }
+
+    @Test
+    void findMatching_ReturnsSameBooksAsJpaFilter() {
+        assertSameBooks(null, null, null, null);
+        assertSameBooks("dune", null, null, null);
+        assertSameBooks("%", null, null, null);
+        assertSameBooks("_", null, null, null);
+        assertSameBooks(null, 1966, null, null);
+        assertSameBooks(null, null, "le guin", null);
+        assertSameBooks(null, null, "100%", null);
+        assertSameBooks(null, null, null, 2.5);
+        assertSameBooks("the", 1967, "ursula", 1.0);
+    }
+
+    @Test
+    void findMatching_LoadsAssociationsAcrossChunks() {
+        List<Book> books = reactiveBookRepository.findMatching(null, null, null, null, 4).collectList().block();
+
+        assertEquals(6, books.size());
+        for (Book book : books) {
+            Book expected = bookService.getBookById(book.getBookId());
+            assertEquals(expected.getAuthors().iterator().next().getName(), book.getAuthors().iterator().next().getName());
+            assertEquals(expected.getRatings().size(), book.getRatings().size());
+            assertEquals(expected.getRatingSum(), book.getRatingSum());
+        }
+    }
+
+    @Test
+    void findById_ReturnsEmptyForMissingBook() {
+        assertNull(reactiveBookRepository.findById(-1).block());
+    }
+
+    private void assertSameBooks(String title, Integer year, String author, Double rating) {
+        List<Integer> expected = bookService.filterBooks(title, year, author, rating).stream().map(Book::getBookId).toList();
+        List<Integer> actual = reactiveBookRepository.findMatching(title, year, author, rating, 500)
+                .map(Book::getBookId)
+                .collectList()
+                .block();
+
+        assertEquals(expected, actual, () -> "title=" + title + " year=" + year + " author=" + author + " rating=" + rating);
+    }
+}
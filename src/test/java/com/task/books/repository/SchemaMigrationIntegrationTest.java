@@ -0,0 +1,84 @@
+package com.task.books.repository;
+
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Starts on a database owned by the migrations, Hibernate only validates its mapping against them
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrated;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.flyway.locations=classpath:db/migration/common,classpath:db/migration/{vendor}",
+        "spring.jpa.hibernate.ddl-auto=validate"})
+class SchemaMigrationIntegrationTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrations_MatchEntityMapping() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"success\" AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"", String.class);
+        assertEquals(List.of("1", "2", "4", "5", "6", "7"), versions);
+        assertEquals(16, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalog_generation", Integer.class));
+
+        Author author = authorRepository.save(new Author("Migrated Author"));
+        Book book = new Book("Migrated Book", 2024, 0.0);
+        book.setAuthors(Set.of(author));
+        Integer bookId = bookRepository.save(book).getBookId();
+
+        Book stored = bookRepository.findWithAssociationsByBookId(bookId).orElseThrow();
+        assertEquals(0L, stored.getVersion());
+        assertEquals(0L, stored.getRatingCount());
+        assertEquals(1, stored.getAuthors().size());
+    }
+
+    @Test
+    void uniqueAuthorNames_MergesExistingDuplicates() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:duplicates;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/common").target("2").load().migrate();
+        JdbcTemplate duplicates = new JdbcTemplate(dataSource);
+        duplicates.update("INSERT INTO authors (author_id, name) VALUES (1, 'Frank Herbert'), (2, 'Frank Herbert'), (3, 'Frank Herbert'), (4, 'Brian Herbert')");
+        duplicates.update("INSERT INTO books (book_id, title, published_year) VALUES (1, 'Dune', 1965), (2, 'Dune Messiah', 1969)");
+        duplicates.update("INSERT INTO book_author (book_id, author_id) VALUES (1, 2), (1, 3), (1, 4), (2, 1), (2, 3)");
+
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/common").load().migrate();
+
+        assertEquals(List.of(1, 4), duplicates.queryForList("SELECT author_id FROM authors ORDER BY author_id", Integer.class));
+        assertEquals(List.of(Map.of("BOOK_ID", 1, "AUTHOR_ID", 1), Map.of("BOOK_ID", 1, "AUTHOR_ID", 4), Map.of("BOOK_ID", 2, "AUTHOR_ID", 1)),
+                duplicates.queryForList("SELECT book_id, author_id FROM book_author ORDER BY book_id, author_id"));
+        assertThrows(Exception.class, () -> duplicates.update("INSERT INTO authors (name) VALUES ('Frank Herbert')"));
+    }
+
+    @Test
+    void baselineSchema_IsUpgradedInPlace() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:baseline;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate baseline = new JdbcTemplate(dataSource);
+        BaselineSchema.create(baseline);
+
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/common")
+                .baselineOnMigrate(true).baselineVersion("0").load().migrate();
+
+        assertEquals(List.of(Map.of("BOOK_ID", 1, "RATING_SUM", 9L, "RATING_COUNT", 2L, "AVERAGE_RATING", 4.5, "VERSION", 0L),
+                        Map.of("BOOK_ID", 2, "RATING_SUM", 0L, "RATING_COUNT", 0L, "AVERAGE_RATING", 0.0, "VERSION", 0L)),
+                baseline.queryForList("SELECT book_id, rating_sum, rating_count, average_rating, version FROM books ORDER BY book_id"));
+    }
+}
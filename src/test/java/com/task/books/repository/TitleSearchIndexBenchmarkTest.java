@@ -0,0 +1,87 @@
+package com.task.books.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares the trigram index with a sequential scan on a real PostgreSQL, run with e.g.
+// mvn test -Dtest=TitleSearchIndexBenchmarkTest -Dbooks.benchmark.postgres-url=jdbc:postgresql://localhost:5432/bookssystem
+@EnabledIfSystemProperty(named = "books.benchmark.postgres-url", matches = ".+")
+class TitleSearchIndexBenchmarkTest {
+
+    private static final int TITLES = Integer.getInteger("books.benchmark.titles", 1_000_000);
+    private static final int RUNS = 20;
+    private static final String QUERY = "SELECT count(*) FROM benchmark_titles WHERE lower(title) LIKE ?";
+
+    @Test
+    void trigramIndexBeatsSequentialScan() throws SQLException {
+        String url = System.getProperty("books.benchmark.postgres-url");
+        String user = System.getProperty("books.benchmark.postgres-user", "postgres");
+        String password = System.getProperty("books.benchmark.postgres-password", "admin");
+
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            statement.execute("DROP TABLE IF EXISTS benchmark_titles");
+            statement.execute("CREATE TABLE benchmark_titles (title VARCHAR(255) NOT NULL)");
+            statement.execute("INSERT INTO benchmark_titles SELECT 'Book ' || md5(i::text) FROM generate_series(1, " + TITLES + ") i");
+            statement.execute("ANALYZE benchmark_titles");
+            try {
+                String pattern = "%" + selectiveTerm(connection) + "%";
+
+                double scanMillis = averageMillis(connection, pattern);
+                assertFalse(plan(connection, pattern).contains("idx_benchmark_titles_trgm"));
+
+                statement.execute("CREATE INDEX idx_benchmark_titles_trgm ON benchmark_titles USING gin (lower(title) gin_trgm_ops)");
+                statement.execute("ANALYZE benchmark_titles");
+                double indexMillis = averageMillis(connection, pattern);
+                String plan = plan(connection, pattern);
+
+                System.out.printf("Substring search over %d titles: sequential scan %.3f ms, trigram index %.3f ms%n", TITLES, scanMillis, indexMillis);
+                assertTrue(plan.contains("idx_benchmark_titles_trgm"), plan);
+                assertTrue(indexMillis < scanMillis);
+            } finally {
+                statement.execute("DROP TABLE benchmark_titles");
+            }
+        }
+    }
+
+    private static String selectiveTerm(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT substr(lower(title), 10, 8) FROM benchmark_titles LIMIT 1")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static double averageMillis(Connection connection, String pattern) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(QUERY)) {
+            statement.setString(1, pattern);
+            long total = 0;
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                }
+                total += System.nanoTime() - start;
+            }
+            return total / 1_000_000.0 / RUNS;
+        }
+    }
+
+    private static String plan(Connection connection, String pattern) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + QUERY)) {
+            statement.setString(1, pattern);
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.task.books.service;
+
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import com.task.books.response.BookImportResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = "books.import.batch-size=2")
+class BookImportServiceIntegrationTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+    }
+
+    @Test
+    void importBooks_NdjsonDeduplicatesAuthorsAcrossBatches() throws Exception {
+        authorRepository.save(new Author("Frank Herbert"));
+
+        BookImportResponse response = bookImportService.importBooks(input("""
+                {"title": "Dune", "year": 1965, "authors": ["Frank Herbert"]}
+                {"title": "Good Omens", "year": 1990, "authors": ["Terry Pratchett", "Neil Gaiman", "Terry Pratchett"]}
+                {"title": "Dune Messiah", "year": 1969, "authors": ["Frank Herbert"]}
+                {"title": "Mort", "year": 1987, "authors": [" Terry Pratchett "]}
+                {"title": "Anonymous", "year": 2001}
+                """), BookImportService.Format.NDJSON);
+
+        assertEquals(5, response.getImported());
+        assertEquals(0, response.getRejected());
+        assertEquals(2, response.getAuthorsCreated());
+        assertEquals(3, authorRepository.count());
+
+        List<Book> pratchett = bookService.filterBooks(null, null, "pratchett", null);
+        assertEquals(List.of("Good Omens", "Mort"), pratchett.stream().map(Book::getTitle).toList());
+        Book goodOmens = bookService.getBookById(pratchett.get(0).getBookId());
+        assertEquals(Set.of("Terry Pratchett", "Neil Gaiman"),
+                goodOmens.getAuthors().stream().map(Author::getName).collect(Collectors.toSet()));
+        assertEquals(0L, goodOmens.getRatingCount());
+        assertEquals(2, bookService.filterBooks(null, null, "herbert", null).size());
+    }
+
+    @Test
+    void importBooks_CsvWithQuotedFieldsAndRejections() throws Exception {
+        BookImportResponse response = bookImportService.importBooks(input("""
+                title,year,authors
+                "Harry Potter and the Sorcerer's Stone",1997,J.K. Rowling
+                ,1998,J.K. Rowling
+                "Good Omens, the Nice and Accurate Prophecies",1990,Terry Pratchett;Neil Gaiman
+                The Hobbit,,J.R.R. Tolkien
+                """), BookImportService.Format.CSV);
+
+        assertEquals(2, response.getImported());
+        assertEquals(2, response.getRejected());
+        assertEquals(List.of(2L, 4L), response.getRejections().stream().map(BookImportResponse.Rejection::getRecord).toList());
+        assertEquals("title is required", response.getRejections().get(0).getMessage());
+        assertEquals(1, bookService.filterBooks("nice and accurate", null, "gaiman", null).size());
+    }
+
+    @Test
+    void importBooks_MalformedRecordKeepsCommittedBatches() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> bookImportService.importBooks(input("""
+                {"title": "Dune", "year": 1965, "authors": ["Frank Herbert"]}
+                {"title": "Emma", "year": 1815, "authors": ["Jane Austen"]}
+                {"title": "Mort", "year": 1987, "authors": ["Terry Pratchett"]}
+                {"title": "Broken", "year": "soon"}
+                """), BookImportService.Format.NDJSON));
+
+        assertEquals("Malformed record 4, 2 books were imported before it", ex.getMessage());
+        assertEquals(2, bookRepository.count());
+        assertEquals(2, authorRepository.count());
+    }
+
+    @Test
+    void importBooks_RejectsTitlesLongerThanTheColumn() throws Exception {
+        String longTitle = "A".repeat(Book.MAX_TITLE_LENGTH + 1);
+
+        BookImportResponse response = bookImportService.importBooks(input(
+                "{\"title\": \"" + longTitle + "\", \"year\": 2001}\n"
+                        + "{\"title\": \"" + longTitle.substring(1) + "\", \"year\": 2002}\n"), BookImportService.Format.NDJSON);
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getRejected());
+        assertEquals("title must not be longer than 255 characters", response.getRejections().get(0).getMessage());
+    }
+
+    @Test
+    void importBooks_RejectsAuthorNamesLongerThanTheColumn() throws Exception {
+        String longName = "B".repeat(Author.MAX_NAME_LENGTH + 1);
+
+        BookImportResponse response = bookImportService.importBooks(input(
+                "{\"title\": \"Too Long\", \"year\": 2001, \"authors\": [\"Jane Doe\", \"" + longName + "\"]}\n"
+                        + "{\"title\": \"Fits\", \"year\": 2002, \"authors\": [\" " + longName.substring(1) + " \"]}\n"),
+                BookImportService.Format.NDJSON);
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getRejected());
+        assertEquals("author names must not be longer than 255 characters", response.getRejections().get(0).getMessage());
+        assertEquals(1, authorRepository.count());
+    }
+
+    @Test
+    void importBooks_ConcurrentImportsCreateEveryAuthorOnce() throws Exception {
+        StringBuilder catalog = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            catalog.append("{\"title\": \"Book ").append(i).append("\", \"year\": 2000, \"authors\": [\"Author ")
+                    .append(i % 5).append("\", \"Author ").append((i + 1) % 5).append("\"]}\n");
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<BookImportResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return bookImportService.importBooks(input(catalog.toString()), BookImportService.Format.NDJSON);
+            }));
+        }
+        start.countDown();
+        long created = 0;
+        for (Future<BookImportResponse> future : futures) {
+            created += future.get(60, TimeUnit.SECONDS).getAuthorsCreated();
+        }
+        executor.shutdown();
+
+        assertEquals(5, authorRepository.count());
+        assertEquals(5, created);
+        assertEquals(80, bookRepository.count());
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
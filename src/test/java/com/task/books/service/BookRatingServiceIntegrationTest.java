@@ -0,0 +1,237 @@
+package com.task.books.service;
+
+import com.task.books.model.*;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import com.task.books.request.BookBatchRateRequest;
+import com.task.books.response.BookBatchRateResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class BookRatingServiceIntegrationTest {
+
+    @Autowired
+    private BookRatingService bookRatingService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    private static final int THREADS = 8;
+    private static final int RATES_PER_BOOK = 10;
+
+    private Book book;
+    private Client client1;
+    private Client client2;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        book = bookRepository.save(new Book("Aggregated Book", 2020, 0.0));
+        client1 = clientRepository.save(new Client("John Doe"));
+        client2 = clientRepository.save(new Client("Jane Smith"));
+    }
+
+    @Test
+    void rateBook_MaintainsAggregatesOnInsertAndRerate() {
+        bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 5);
+        bookRatingService.rateBook(book.getBookId(), client2.getClientId(), 2);
+        bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 3);
+
+        Book stored = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(5L, stored.getRatingSum());
+        assertEquals(2L, stored.getRatingCount());
+        assertEquals(2.5, stored.getAvgRating());
+    }
+
+    @Test
+    void rateBooks_WritesRatingsAndAggregatesInOneBatch() {
+        Book otherBook = bookRepository.save(new Book("Other Aggregated Book", 2021, 0.0));
+        bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 1);
+
+        BookBatchRateResponse response = bookRatingService.rateBooks(List.of(
+                new BookBatchRateRequest(book.getBookId(), client1.getClientId(), 4),
+                new BookBatchRateRequest(book.getBookId(), client2.getClientId(), 2),
+                new BookBatchRateRequest(otherBook.getBookId(), client1.getClientId(), 5),
+                new BookBatchRateRequest(otherBook.getBookId(), -1, 5)));
+
+        assertEquals(3, response.getAccepted());
+        assertEquals(1, response.getFailures().size());
+        assertEquals(3, response.getFailures().get(0).getIndex());
+
+        Book stored = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(6L, stored.getRatingSum());
+        assertEquals(2L, stored.getRatingCount());
+        assertEquals(3.0, stored.getAvgRating());
+
+        Book storedOther = bookRepository.findById(otherBook.getBookId()).orElseThrow();
+        assertEquals(5L, storedOther.getRatingSum());
+        assertEquals(1L, storedOther.getRatingCount());
+        assertEquals(5.0, storedOther.getAvgRating());
+        assertEquals(3, bookRatingRepository.count());
+    }
+
+    @Test
+    void rebuildRatingAggregates_RepairsAggregatesFromBookRating() {
+        Book unrated = bookRepository.save(new Book("Unrated Book", 2021, 3.0));
+        bookRatingRepository.saveAll(List.of(
+                new BookRating(new BookRatingKey(book.getBookId(), client1.getClientId()), book, client1, 4),
+                new BookRating(new BookRatingKey(book.getBookId(), client2.getClientId()), book, client2, 1)));
+
+        int updated = bookRatingService.rebuildRatingAggregates();
+
+        assertEquals(2, updated);
+        Book repaired = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(5L, repaired.getRatingSum());
+        assertEquals(2L, repaired.getRatingCount());
+        assertEquals(2.5, repaired.getAvgRating());
+
+        Book repairedUnrated = bookRepository.findById(unrated.getBookId()).orElseThrow();
+        assertEquals(0L, repairedUnrated.getRatingSum());
+        assertEquals(0L, repairedUnrated.getRatingCount());
+        assertEquals(0.0, repairedUnrated.getAvgRating());
+    }
+
+    @Test
+    void rateBook_ConcurrentRatingsKeepExactAggregates() throws Exception {
+        Book otherBook = bookRepository.save(new Book("Other Aggregated Book", 2021, 0.0));
+        List<Integer> bookIds = List.of(book.getBookId(), otherBook.getBookId());
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            clients.add(clientRepository.save(new Client("Client " + i)));
+        }
+
+        // Every client re-rates both books several times, the last rating of each pair is the expected one
+        Map<Integer, Long> expectedSums = new HashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Integer clientId = clients.get(i).getClientId();
+            int seed = i;
+            for (Integer bookId : bookIds) {
+                expectedSums.merge(bookId, (long) ratingFor(seed, bookId, RATES_PER_BOOK - 1), Long::sum);
+            }
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < RATES_PER_BOOK; round++) {
+                    for (Integer bookId : bookIds) {
+                        bookRatingService.rateBook(bookId, clientId, ratingFor(seed, bookId, round));
+                    }
+                }
+                return null;
+            }));
+        }
+        // Two more threads fight over the same (book, client) pair
+        Integer sharedClientId = clients.get(0).getClientId();
+        for (int i = 0; i < 2; i++) {
+            int rating = i + 1;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < RATES_PER_BOOK; round++) {
+                    bookRatingService.rateBook(otherBook.getBookId(), sharedClientId, rating);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Book stored = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(expectedSums.get(book.getBookId()), stored.getRatingSum());
+        assertEquals(THREADS, stored.getRatingCount());
+        assertEquals((double) expectedSums.get(book.getBookId()) / THREADS, stored.getAvgRating());
+
+        // Whichever write won the shared pair, the aggregates must match the stored rating rows exactly
+        List<BookRating> otherRatings = bookRatingRepository.findAll().stream()
+                .filter(rating -> rating.getId().getBookId().equals(otherBook.getBookId()))
+                .toList();
+        long otherSum = otherRatings.stream().mapToLong(BookRating::getRating).sum();
+        Book storedOther = bookRepository.findById(otherBook.getBookId()).orElseThrow();
+        assertEquals(THREADS, otherRatings.size());
+        assertEquals(otherSum, storedOther.getRatingSum());
+        assertEquals(THREADS, storedOther.getRatingCount());
+        assertEquals((double) otherSum / THREADS, storedOther.getAvgRating());
+    }
+
+    @Test
+    void updateBook_ConcurrentRatingsKeepAggregates() throws Exception {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            clients.add(clientRepository.save(new Client("Client " + i)));
+        }
+
+        // Every client rates the book once while its title is edited over and over
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        long expectedSum = 0;
+        for (int i = 0; i < THREADS; i++) {
+            Integer clientId = clients.get(i).getClientId();
+            int rating = i % 5 + 1;
+            expectedSum += rating;
+            futures.add(executor.submit(() -> {
+                start.await();
+                bookRatingService.rateBook(book.getBookId(), clientId, rating);
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int round = 0; round < RATES_PER_BOOK * THREADS; round++) {
+                bookService.updateBook(book.getBookId(), new Book("Edited Book " + round, 2020, 0.0));
+            }
+            return null;
+        }));
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Book stored = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals("Edited Book " + (RATES_PER_BOOK * THREADS - 1), stored.getTitle());
+        assertEquals(expectedSum, stored.getRatingSum());
+        assertEquals(THREADS, stored.getRatingCount());
+        assertEquals((double) expectedSum / THREADS, stored.getAvgRating());
+    }
+
+    private static int ratingFor(int seed, int bookId, int round) {
+        return (seed + bookId + round) % 5 + 1;
+    }
+}
@@ -1,19 +1,28 @@
 package com.task.books.service;
 
-import com.task.books.model.*;
+import com.task.books.cache.BookCache;
+import com.task.books.event.BookChangedEvent;
+import com.task.books.event.CatalogChangedEvent;
+import com.task.books.model.Book;
+import com.task.books.model.BookRatingKey;
+import com.task.books.model.Client;
+import com.task.books.repository.BookRatingBatchRepository;
 import com.task.books.repository.BookRatingRepository;
 import com.task.books.repository.BookRepository;
 import com.task.books.repository.ClientRepository;
+import com.task.books.request.BookBatchRateRequest;
+import com.task.books.response.BookBatchRateResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
 import jakarta.persistence.EntityNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
-import java.util.HashSet;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,107 +38,147 @@ class BookRatingServiceUnitTest {
     @Mock
     private ClientRepository clientRepository;
 
+    @Mock
+    private BookRatingBatchRepository bookRatingBatchRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private BookCache bookCache;
+
     private BookRatingService bookRatingService;
 
     @BeforeEach
     public void setUp() {
-        bookRatingService = new BookRatingService(bookRepository, bookRatingRepository, clientRepository);
+        bookCache = new BookCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+        bookRatingService = new BookRatingService(bookRepository, bookRatingRepository, clientRepository, bookRatingBatchRepository, bookCache, eventPublisher, new PendingRatingDeltas(false, 1000));
     }
 
     @Test
     public void rateBook_CorrectlyRatesBookWithNoExistingRating() {
-        Book book = new Book("Test Book", 2022, 0.0);
+        Book book = new Book("Test Book", 2022, 5.0);
         book.setBookId(1);
-        book.setRatings(new HashSet<>());
 
-        Client client = new Client("Test Client");
-        client.setClientId(1);
+        when(bookRepository.existsById(1)).thenReturn(true);
+        when(clientRepository.findById(2)).thenReturn(Optional.of(new Client("John Doe")));
+        when(bookRatingRepository.insertIfAbsent(1, 2, 5)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(book));
+
+        Book ratedBook = bookRatingService.rateBook(1, 2, 5);
 
-        when(bookRepository.findById(book.getBookId())).thenReturn(Optional.of(book));
-        when(clientRepository.findById(client.getClientId())).thenReturn(Optional.of(client));
-        when(bookRatingRepository.findById(any(BookRatingKey.class))).thenReturn(Optional.empty());
+        assertEquals(book, ratedBook);
+        verify(bookRatingBatchRepository).applyRatingDelta(1, new BookRatingBatchRepository.RatingDelta(5, 1));
+        verify(bookRatingRepository, never()).findRatingForUpdate(anyInt(), anyInt());
+        verify(bookRatingRepository, never()).updateRating(anyInt(), anyInt(), anyInt());
+    }
 
-        int rating = 5;
-        Book ratedBook = bookRatingService.rateBook(book.getBookId(), client.getClientId(), rating);
+    @Test
+    public void rateBook_InvalidatesCachedBook() {
+        Book cachedBook = new Book("Test Book", 2022, 0.0);
+        Book ratedBook = new Book("Test Book", 2022, 5.0);
+        bookCache.get(1, id -> cachedBook);
 
-        ArgumentCaptor<BookRating> ratingCaptor = ArgumentCaptor.forClass(BookRating.class);
-        verify(bookRatingRepository).save(ratingCaptor.capture());
+        when(bookRepository.existsById(1)).thenReturn(true);
+        when(clientRepository.findById(2)).thenReturn(Optional.of(new Client("John Doe")));
+        when(bookRatingRepository.insertIfAbsent(1, 2, 5)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(ratedBook));
 
-        BookRating savedRating = ratingCaptor.getValue();
-        assertEquals(book.getBookId(), savedRating.getBook().getBookId());
-        assertEquals(client.getClientId(), savedRating.getClient().getClientId());
-        assertEquals(rating, savedRating.getRating());
+        bookRatingService.rateBook(1, 2, 5);
 
-        assertEquals(book, ratedBook);
+        assertSame(ratedBook, bookCache.get(1, id -> ratedBook));
     }
 
     @Test
     public void rateBook_CorrectlyRatesBookWithExistingRating() {
-        Book book = new Book("Test Book", 2022, 0.0);
+        Book book = new Book("Test Book", 2022, 4.5);
         book.setBookId(1);
-        book.setRatings(new HashSet<>());
 
-        Client client = new Client("Test Client");
-        client.setClientId(1);
+        when(bookRepository.existsById(1)).thenReturn(true);
+        when(clientRepository.findById(2)).thenReturn(Optional.of(new Client("John Doe")));
+        when(bookRatingRepository.insertIfAbsent(1, 2, 5)).thenReturn(0);
+        when(bookRatingRepository.findRatingForUpdate(1, 2)).thenReturn(3);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(book));
 
-        when(bookRepository.findById(book.getBookId())).thenReturn(Optional.of(book));
-        when(clientRepository.findById(client.getClientId())).thenReturn(Optional.of(client));
+        Book ratedBook = bookRatingService.rateBook(1, 2, 5);
 
-        BookRating existingRating = new BookRating();
-        existingRating.setId(new BookRatingKey(book.getBookId(), client.getClientId()));
-        existingRating.setBook(book);
-        existingRating.setClient(client);
-        existingRating.setRating(3);
+        assertEquals(book, ratedBook);
+        verify(bookRatingRepository).updateRating(1, 2, 5);
+        // Only the difference to the previous rating is applied, the count stays the same
+        verify(bookRatingBatchRepository).applyRatingDelta(1, new BookRatingBatchRepository.RatingDelta(2, 0));
+    }
 
-        when(bookRatingRepository.findById(existingRating.getId())).thenReturn(Optional.of(existingRating));
+    @Test
+    void rateBooks_ReportsInvalidItemsAndAppliesOneDeltaPerBook() {
+        when(bookRepository.findExistingIds(Set.of(1, 2, 99))).thenReturn(Set.of(1, 2));
+        when(clientRepository.findExistingIds(Set.of(10, 11, 98))).thenReturn(Set.of(10, 11));
+        BookRatingKey existing = new BookRatingKey(1, 10);
+        when(bookRatingBatchRepository.findRatingsForUpdate(any())).thenReturn(new HashMap<>(Map.of(existing, 2)));
+        when(bookRatingBatchRepository.insertIfAbsent(any())).thenReturn(Set.of());
+
+        BookBatchRateResponse response = bookRatingService.rateBooks(List.of(
+                new BookBatchRateRequest(1, 10, 3),
+                new BookBatchRateRequest(1, 11, 4),
+                new BookBatchRateRequest(2, 10, 1),
+                new BookBatchRateRequest(1, 11, 5),
+                new BookBatchRateRequest(99, 10, 5),
+                new BookBatchRateRequest(2, 98, 5),
+                new BookBatchRateRequest(2, 11, 6),
+                new BookBatchRateRequest(null, 11, 3)));
+
+        assertEquals(4, response.getAccepted());
+        assertEquals(List.of(4, 5, 6, 7), response.getFailures().stream().map(BookBatchRateResponse.Failure::getIndex).toList());
+        assertEquals("Book not found", response.getFailures().get(0).getMessage());
+        assertEquals("Client not found", response.getFailures().get(1).getMessage());
+        assertEquals("Rating must be between 1 and 5", response.getFailures().get(2).getMessage());
+        assertEquals("bookId, clientId and rating are required", response.getFailures().get(3).getMessage());
+
+        // (1, 11) was rated twice, only its last rating is inserted
+        verify(bookRatingBatchRepository).insertIfAbsent(Map.of(new BookRatingKey(1, 11), 5, new BookRatingKey(2, 10), 1));
+        verify(bookRatingBatchRepository).updateRatings(Map.of(existing, 3));
+        verify(bookRatingBatchRepository).applyRatingDeltas(new TreeMap<>(Map.of(
+                1, new BookRatingBatchRepository.RatingDelta(6, 1),
+                2, new BookRatingBatchRepository.RatingDelta(1, 1))));
+        verify(eventPublisher).publishEvent(new BookChangedEvent(Set.of(1, 2)));
+    }
 
-        int rating = 5;
-        Book ratedBook = bookRatingService.rateBook(book.getBookId(), client.getClientId(), rating);
+    @Test
+    void rateBooks_RejectsOversizedBatch() {
+        List<BookBatchRateRequest> requests = Collections.nCopies(BookRatingService.MAX_BATCH_SIZE + 1, new BookBatchRateRequest(1, 1, 5));
 
-        ArgumentCaptor<BookRating> ratingCaptor = ArgumentCaptor.forClass(BookRating.class);
-        verify(bookRatingRepository).save(ratingCaptor.capture());
+        assertThrows(IllegalArgumentException.class, () -> bookRatingService.rateBooks(requests));
+        verifyNoInteractions(bookRepository, clientRepository, bookRatingBatchRepository);
+    }
 
-        BookRating savedRating = ratingCaptor.getValue();
-        assertEquals(book.getBookId(), savedRating.getBook().getBookId());
-        assertEquals(client.getClientId(), savedRating.getClient().getClientId());
-        assertEquals(rating, savedRating.getRating());
+    @Test
+    void rebuildRatingAggregates() {
+        when(bookRepository.rebuildRatingAggregates()).thenReturn(3);
 
-        assertEquals(book, ratedBook);
+        assertEquals(3, bookRatingService.rebuildRatingAggregates());
+        verify(bookRepository).rebuildRatingAggregates();
+        verify(eventPublisher).publishEvent(new CatalogChangedEvent());
     }
 
     @Test
     void rateBook_BookNotFoundThrowsEntityNotFoundException() {
-        Book book = new Book("Test Book", 2022, 0.0);
-        book.setBookId(1);
-
-        Client client = new Client("Test Client");
-        client.setClientId(1);
-
-        when(bookRepository.findById(book.getBookId())).thenReturn(Optional.empty());
+        when(bookRepository.existsById(1)).thenReturn(false);
 
-        EntityNotFoundException thrown = assertThrows(EntityNotFoundException.class, () -> bookRatingService.rateBook(book.getBookId(), client.getClientId(), 5));
+        EntityNotFoundException thrown = assertThrows(EntityNotFoundException.class, () -> bookRatingService.rateBook(1, 1, 5));
 
         assertEquals("Book not found", thrown.getMessage());
-        verify(bookRepository).findById(book.getBookId());
+        verify(bookRepository).existsById(1);
         verifyNoMoreInteractions(clientRepository, bookRatingRepository);
     }
 
     @Test
     void rateBook_ClientNotFoundThrowsEntityNotFoundException() {
-        Book book = new Book("Test Book", 2022, 0.0);
-        book.setBookId(1);
-
-        Client client = new Client("Test Client");
-        client.setClientId(1);
-
-        when(bookRepository.findById(book.getBookId())).thenReturn(Optional.of(book));
-        when(clientRepository.findById(client.getClientId())).thenReturn(Optional.empty());
+        when(bookRepository.existsById(1)).thenReturn(true);
+        when(clientRepository.findById(1)).thenReturn(Optional.empty());
 
-        EntityNotFoundException thrown = assertThrows(EntityNotFoundException.class, () -> bookRatingService.rateBook(book.getBookId(), client.getClientId(), 5));
+        EntityNotFoundException thrown = assertThrows(EntityNotFoundException.class, () -> bookRatingService.rateBook(1, 1, 5));
 
         assertEquals("Client not found", thrown.getMessage());
-        verify(bookRepository).findById(book.getBookId());
-        verify(clientRepository).findById(client.getClientId());
+        verify(bookRepository).existsById(1);
+        verify(clientRepository).findById(1);
         verifyNoMoreInteractions(bookRatingRepository);
     }
-}
\ No newline at end of file
+}
@@ -1,19 +1,34 @@
 package com.task.books.service;
 
-import com.task.books.model.Author;
+import com.task.books.cache.BookCache;
+import com.task.books.event.BookChangedEvent;
 import com.task.books.model.Book;
-import com.task.books.model.BookRating;
+import com.task.books.repository.BookDeleteRepository;
+import com.task.books.repository.BookUpdateRepository;
 import com.task.books.repository.BookRepository;
+import com.task.books.response.BookBatchDeleteResponse;
+import com.task.books.response.BookBatchGetResponse;
+import com.task.books.response.BookPage;
+import com.task.books.snapshot.CatalogSnapshot;
+import jakarta.persistence.EntityManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,182 +39,209 @@ class BookServiceUnitTest {
     @Mock
     private BookRepository bookRepository;
 
-    private BookService bookService;
-
-    @BeforeEach
-    public void setUp() {
-        bookService = new BookService(bookRepository);
-    }
-
-    @Test
-    public void filterBooksByTitle() {
-        String title = "Test Book";
-        List<Book> allBooks = List.of(new Book("Test Book", 2001, 0.0), new Book("Other Book", 1999, 0.0));
+    @Mock
+    private BookDeleteRepository bookDeleteRepository;
 
-        when(bookRepository.findAll()).thenReturn(allBooks);
+    @Mock
+    private BookUpdateRepository bookUpdateRepository;
 
-        List<Book> actualBooks = bookService.filterBooks(title, null, null, null);
+    @Mock
+    private EntityManager entityManager;
 
-        assertEquals(1, actualBooks.size());
-        assertEquals("Test Book", actualBooks.get(0).getTitle());
-        verify(bookRepository).findAll();
-    }
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
-    @Test
-    public void filterBooksByYear() {
-        Integer year = 2001;
-        List<Book> allBooks = List.of(new Book("Test Book", 2001, 0.0), new Book("Other Book", 1999, 0.0));
+    @Mock
+    private CatalogSnapshot catalogSnapshot;
 
-        when(bookRepository.findAll()).thenReturn(allBooks);
+    private BookCache bookCache;
 
-        List<Book> actualBooks = bookService.filterBooks(null, year, null, null);
+    private BookService bookService;
 
-        assertEquals(1, actualBooks.size());
-        assertEquals(year, actualBooks.get(0).getYear());
-        verify(bookRepository).findAll();
+    @BeforeEach
+    public void setUp() {
+        bookCache = new BookCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+        bookService = new BookService(bookRepository, bookDeleteRepository, bookUpdateRepository, entityManager, bookCache, eventPublisher, new PendingRatingDeltas(false, 1000), catalogSnapshot);
     }
 
     @Test
-    public void filterBooksByAuthor() {
-        String authorName = "test";
-        Author author = new Author(authorName);
-        Book book = new Book("Test Book", 2001, 0.0);
-        book.setAuthors(Set.of(author));
-        Book book2 = new Book("Other Book", 1999, 0.0);
-        book2.setAuthors(Set.of(new Author("other")));
-
-        List<Book> allBooks = List.of(book, book2);
+    @SuppressWarnings("unchecked")
+    public void filterBooksDelegatesToSpecificationOrderedById() {
+        List<Book> expectedBooks = List.of(new Book("Test Book", 2001, 0.0));
 
-        when(bookRepository.findAll()).thenReturn(allBooks);
+        when(bookRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(expectedBooks);
 
-        List<Book> actualBooks = bookService.filterBooks(null, null, authorName, null);
+        List<Book> actualBooks = bookService.filterBooks("Test", 2001, "test", 3.0);
 
-        assertEquals(1, actualBooks.size());
-        assertTrue(actualBooks.get(0).getAuthors().stream().anyMatch(a -> a.getName().equalsIgnoreCase(authorName)));
-        verify(bookRepository).findAll();
+        assertEquals(expectedBooks, actualBooks);
+        verify(bookRepository).findAll(any(Specification.class), eq(Sort.by("bookId")));
+        verify(bookRepository, never()).findAll();
     }
 
-
     @Test
-    public void filterBooksByRating() {
-        Double rating = 3.0;
-        BookRating bookRating = new BookRating();
-        bookRating.setRating(5);
-
-        BookRating bookRating1 = new BookRating();
-        bookRating1.setRating(3);
-
-        Book book = new Book("Test Book", 2001, 5.0);
-        book.setRatings(Set.of(bookRating));
-
-        Book book1 = new Book("Test Book1", 2001, 3.0);
-        book1.setRatings(Set.of(bookRating1));
-
-        List<Book> allBooks = List.of(book,book1);
-
-        when(bookRepository.findAll()).thenReturn(allBooks);
-
-        List<Book> actualBooks = bookService.filterBooks(null, null, null, rating);
-
-        assertEquals(2, actualBooks.size());
-        assertTrue(actualBooks.get(0).getRatings().stream().mapToDouble(BookRating::getRating).average().orElse(0) >= rating);
-        verify(bookRepository).findAll();
+    @SuppressWarnings("unchecked")
+    public void filterBooksLoadsSnapshotMatchesInChunks() {
+        int[] bookIds = new int[BookService.MAX_PAGE_SIZE + 1];
+        for (int i = 0; i < bookIds.length; i++) {
+            bookIds[i] = i + 1;
+        }
+        Book first = new Book("First", 2001, 0.0);
+        Book last = new Book("Last", 2001, 0.0);
+
+        when(catalogSnapshot.filter("Test", 2001, null, null)).thenReturn(bookIds);
+        when(bookRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(List.of(first)).thenReturn(List.of(last));
+
+        assertEquals(List.of(first, last), bookService.filterBooks("Test", 2001, null, null));
+        verify(bookRepository, times(2)).findAll(any(Specification.class), eq(Sort.by("bookId")));
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     public void filterBooksByDefault() {
         List<Book> expectedBooks = List.of(new Book("Test Book", 2001, 0.0), new Book("Other Book", 1999, 0.0));
 
-        when(bookRepository.findAll()).thenReturn(expectedBooks);
+        when(bookRepository.findAll(any(Specification.class), any(Sort.class))).thenReturn(expectedBooks);
 
         List<Book> actualBooks = bookService.filterBooks(null, null, null, null);
 
         assertEquals(expectedBooks, actualBooks);
         assertEquals(2, actualBooks.size());
-        verify(bookRepository).findAll();
+        verify(bookRepository, never()).findAll();
     }
 
     @Test
-    public void filterBooksByEveryFilter() {
-        String title = "Test Book";
-        Integer year = 2001;
-        String authorName = "test";
-        Double rating = 3.0;
-
-        Author author = new Author(authorName);
-        BookRating bookRating = new BookRating();
-        bookRating.setRating(5);
+    @SuppressWarnings("unchecked")
+    public void filterBooksPageReturnsCursorWhenMoreBooksExist() {
+        when(bookRepository.findBy(any(Specification.class), any(Function.class)))
+                .thenReturn(List.of(bookWithId(1), bookWithId(2), bookWithId(3)));
 
-        BookRating bookRating2 = new BookRating();
-        bookRating2.setRating(2);
+        BookPage page = bookService.filterBooksPage(null, null, null, null, null, 2);
 
-        Book book = new Book("Test Book", 2001, 5.0);
-        book.setAuthors(Set.of(author));
-        book.setRatings(Set.of(bookRating));
-
-        Book book2 = new Book("Other Book", 1999, 2.0);
-        book2.setAuthors(Set.of(new Author("other")));
-        book2.setRatings(Set.of(bookRating2));
+        assertEquals(2, page.getBooks().size());
+        assertEquals(BookCursor.encode(2), page.getNextCursor());
+    }
 
-        List<Book> allBooks = List.of(book, book2);
+    @Test
+    @SuppressWarnings("unchecked")
+    public void filterBooksPageReturnsNoCursorOnLastPage() {
+        when(bookRepository.findBy(any(Specification.class), any(Function.class)))
+                .thenReturn(List.of(bookWithId(3)));
 
-        when(bookRepository.findAll()).thenReturn(allBooks);
+        BookPage page = bookService.filterBooksPage(null, null, null, null, BookCursor.encode(2), 2);
 
-        List<Book> actualBooks = bookService.filterBooks(title, year, authorName, rating);
+        assertEquals(1, page.getBooks().size());
+        assertNull(page.getNextCursor());
+    }
 
-        assertEquals(1, actualBooks.size());
-        assertEquals(title, actualBooks.get(0).getTitle());
-        assertEquals(year, actualBooks.get(0).getYear());
-        assertTrue(actualBooks.get(0).getAuthors().stream().anyMatch(a -> a.getName().equalsIgnoreCase(authorName)));
-        assertTrue(actualBooks.get(0).getRatings().stream().mapToDouble(BookRating::getRating).average().orElse(0) >= rating);
-        verify(bookRepository).findAll();
+    @Test
+    void filterBooksPageRejectsInvalidCursorAndLimit() {
+        assertThrows(IllegalArgumentException.class, () -> bookService.filterBooksPage(null, null, null, null, "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> bookService.filterBooksPage(null, null, null, null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> bookService.filterBooksPage(null, null, null, null, null, BookService.MAX_PAGE_SIZE + 1));
+        verifyNoInteractions(bookRepository);
+    }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamBooksClearsPersistenceContextAfterEveryChunk() {
+        when(bookRepository.findBy(any(Specification.class), any(Function.class)))
+                .thenReturn(List.of(bookWithId(1), bookWithId(2)))
+                .thenReturn(List.of(bookWithId(3)));
+
+        List<Integer> streamedIds = new ArrayList<>();
+        bookService.streamBooks(null, null, null, null, 2, books -> books.forEach(book -> streamedIds.add(book.getBookId())));
+
+        assertEquals(List.of(1, 2, 3), streamedIds);
+        verify(bookRepository, times(2)).findBy(any(Specification.class), any(Function.class));
+        verify(entityManager, times(2)).clear();
     }
 
     @Test
-    public void filterBooksByMixedFiltersTitleAndRating() {
-        String title = "Test Book";
-        Double rating = 3.0;
+    void getBookById() {
+        Book book = new Book("Harry Potter", 1997, 0.0);
+        book.setBookId(1);
+        when(bookRepository.findWithAssociationsByBookId(book.getBookId())).thenReturn(Optional.of(book));
 
-        BookRating bookRating = new BookRating();
-        bookRating.setRating(5);
+        Book foundBook = bookService.getBookById(book.getBookId());
 
-        BookRating bookRating2 = new BookRating();
-        bookRating2.setRating(3);
+        assertNotNull(foundBook);
+        assertEquals("Harry Potter", foundBook.getTitle());
+        verify(bookRepository).findWithAssociationsByBookId(book.getBookId());
+    }
 
-        Book book = new Book("Test Book", 2001, 5.0);
-        book.setRatings(Set.of(bookRating));
+    @Test
+    void getBookById_ServesRepeatedReadsFromCache() {
+        Book book = new Book("Harry Potter", 1997, 0.0);
+        book.setBookId(1);
+        when(bookRepository.findWithAssociationsByBookId(1)).thenReturn(Optional.of(book));
 
-        Book book2 = new Book("Other Book", 1999, 3.0);
-        book2.setRatings(Set.of(bookRating2));
+        assertSame(book, bookService.getBookById(1));
+        assertSame(book, bookService.getBookById(1));
 
-        List<Book> allBooks = List.of(book, book2);
+        verify(bookRepository, times(1)).findWithAssociationsByBookId(1);
+    }
 
-        when(bookRepository.findAll()).thenReturn(allBooks);
+    @Test
+    void getBookById_DoesNotCacheMissingBooks() {
+        when(bookRepository.findWithAssociationsByBookId(1)).thenReturn(Optional.empty());
 
-        List<Book> actualBooks = bookService.filterBooks(title, null, null, rating);
+        assertNull(bookService.getBookById(1));
+        assertNull(bookService.getBookById(1));
 
-        assertEquals(1, actualBooks.size());
-        assertEquals(title, actualBooks.get(0).getTitle());
-        assertTrue(actualBooks.get(0).getRatings().stream().mapToDouble(BookRating::getRating).average().orElse(0) >= rating);
-        verify(bookRepository).findAll();
+        verify(bookRepository, times(2)).findWithAssociationsByBookId(1);
     }
 
     @Test
-    void getBookById() {
-        Book book = new Book("Harry Potter", 1997, 0.0);
-        when(bookRepository.findById(book.getBookId())).thenReturn(Optional.of(book));
+    void getBooksByIds_KeepsRequestedOrderAndLoadsOnlyUncachedBooks() {
+        Book first = new Book("First", 1997, 0.0);
+        first.setBookId(1);
+        Book second = new Book("Second", 1998, 0.0);
+        second.setBookId(2);
+        when(bookRepository.findWithAssociationsByBookId(2)).thenReturn(Optional.of(second));
+        when(bookRepository.findAllById(Set.of(1, 3))).thenReturn(List.of(first));
+        bookService.getBookById(2);
+
+        BookBatchGetResponse response = bookService.getBooksByIds(List.of(2, 3, 1, 2));
+
+        assertEquals(List.of(second, first), response.getBooks());
+        assertEquals(List.of(3), response.getMissingIds());
+        assertSame(first, bookService.getBooksByIds(List.of(1)).getBooks().get(0));
+        verify(bookRepository, times(1)).findAllById(any());
+    }
 
-        Book foundBook = bookService.getBookById(book.getBookId());
+    @Test
+    void getBooksByIds_RejectsEmptyAndOversizedRequests() {
+        List<Integer> tooMany = new ArrayList<>();
+        for (int i = 0; i <= BookService.MAX_PAGE_SIZE; i++) {
+            tooMany.add(i);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBooksByIds(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBooksByIds(tooMany));
+        verifyNoInteractions(bookRepository);
+    }
 
-        assertNotNull(foundBook);
-        assertEquals("Harry Potter", foundBook.getTitle());
-        verify(bookRepository).findById(book.getBookId());
+    @Test
+    void updateBook_InvalidatesCachedBook() {
+        Book cachedBook = new Book("Existing Title", 2022, 4.0);
+        cachedBook.setBookId(1);
+        Book updatedBook = new Book("Updated Title", 2023, 4.0);
+        updatedBook.setBookId(1);
+        when(bookRepository.findWithAssociationsByBookId(1)).thenReturn(Optional.of(cachedBook)).thenReturn(Optional.of(updatedBook));
+        when(bookUpdateRepository.updateDetails(1, "Updated Title", 2023)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(updatedBook));
+
+        bookService.getBookById(1);
+        bookService.updateBook(1, new Book("Updated Title", 2023, 0.0));
+
+        assertSame(updatedBook, bookService.getBookById(1));
+        verify(bookRepository, times(2)).findWithAssociationsByBookId(1);
     }
 
     @Test
     void addBook() {
         Book book = new Book("Harry Potter", 1997, 0.0);
+        book.setBookId(1);
         when(bookRepository.save(any(Book.class))).thenReturn(book);
 
         Book savedBook = bookService.addBook(book);
@@ -209,32 +251,48 @@ class BookServiceUnitTest {
         verify(bookRepository).save(book);
     }
 
+    @Test
+    void addBook_ResetsRatingAggregates() {
+        Book book = new Book("Harry Potter", 1997, 4.5);
+        book.setBookId(1);
+        book.setRatingSum(9L);
+        book.setRatingCount(2L);
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Book savedBook = bookService.addBook(book);
+
+        assertEquals(0.0, savedBook.getAvgRating());
+        assertEquals(0L, savedBook.getRatingSum());
+        assertEquals(0L, savedBook.getRatingCount());
+    }
+
     @Test
     void updateBook_Success() {
-        Book existingBook = new Book("Existing Title", 2022, 4.0);
-        existingBook.setBookId(1);
+        Book storedBook = new Book("Updated Title", 2023, 4.0);
+        storedBook.setBookId(1);
 
         Book updatedBookDetails = new Book("Updated Title", 2023, 4.5);
 
-        when(bookRepository.findById(1)).thenReturn(Optional.of(existingBook));
-        when(bookRepository.save(any(Book.class))).thenReturn(existingBook);
+        when(bookUpdateRepository.updateDetails(1, "Updated Title", 2023)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(storedBook));
 
         Book result = bookService.updateBook(1, updatedBookDetails);
 
         assertNotNull(result);
         assertEquals("Updated Title", result.getTitle());
         assertEquals(2023, result.getYear());
-        assertEquals(4.5, result.getAvgRating());
+        // The average is derived from the ratings and cannot be overwritten
+        assertEquals(4.0, result.getAvgRating());
 
-        verify(bookRepository).findById(1);
-        verify(bookRepository).save(existingBook);
+        verify(bookUpdateRepository).updateDetails(1, "Updated Title", 2023);
+        verify(bookRepository, never()).save(any(Book.class));
     }
 
     @Test
     void updateBook_BookNotFound() {
         Book updatedBookDetails = new Book("Updated Title", 2023, 4.5);
 
-        when(bookRepository.findById(999)).thenReturn(Optional.empty());
+        when(bookUpdateRepository.updateDetails(999, "Updated Title", 2023)).thenReturn(0);
 
         Exception exception = assertThrows(EntityNotFoundException.class, () -> {
             bookService.updateBook(999, updatedBookDetails);
@@ -242,22 +300,47 @@ class BookServiceUnitTest {
 
         assertEquals("Book not found", exception.getMessage());
 
-        verify(bookRepository).findById(999);
-        verify(bookRepository, never()).save(any(Book.class));
+        verify(bookRepository, never()).findById(999);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void deleteBook() {
         Book book = new Book("Harry Potter", 1997, 0.0);
+        book.setBookId(1);
 
         when(bookRepository.findById(book.getBookId())).thenReturn(Optional.of(book));
 
         bookService.deleteBook(book.getBookId());
 
-        verify(bookRepository).deleteById(book.getBookId());
+        verify(bookDeleteRepository).deleteBooks(List.of(book.getBookId()));
+        verify(bookRepository, never()).deleteById(any());
 
         when(bookRepository.findById(book.getBookId())).thenReturn(Optional.empty());
 
         assertTrue(bookRepository.findById(book.getBookId()).isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void deleteBooks_DeletesExistingBooksAndReportsMissingIds() {
+        Book book = new Book("Harry Potter", 1997, 0.0);
+        book.setBookId(2);
+        when(bookRepository.findWithAssociationsByBookId(2)).thenReturn(Optional.of(book)).thenReturn(Optional.empty());
+        when(bookRepository.findExistingIds(List.of(3, 2, 4, 3))).thenReturn(Set.of(2, 3));
+        when(bookDeleteRepository.deleteBooks(new TreeSet<>(Set.of(2, 3)))).thenReturn(2);
+        bookService.getBookById(2);
+
+        BookBatchDeleteResponse response = bookService.deleteBooks(List.of(3, 2, 4, 3));
+
+        assertEquals(2, response.getDeleted());
+        assertEquals(List.of(4), response.getMissingIds());
+        assertNull(bookService.getBookById(2));
+        verify(eventPublisher).publishEvent(new BookChangedEvent(Set.of(2, 3)));
+    }
+
+    private static Book bookWithId(Integer id) {
+        Book book = new Book("Book " + id, 2000, 0.0);
+        book.setBookId(id);
+        return book;
+    }
+}
@@ -0,0 +1,207 @@
+package com.task.books.service;
+
+import com.task.books.job.RatingAggregateFlushJob;
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.repository.AuthorRepository;
+import com.task.books.repository.BookRatingRepository;
+import com.task.books.repository.BookRepository;
+import com.task.books.repository.ClientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The scheduled flush is pushed out of the way, flushes happen explicitly or through the threshold of three books.
+// The application task executor gets a single thread, as if every thread streamed a response.
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "books.rating.write-behind.enabled=true",
+        "books.rating.write-behind.flush-interval=PT1H",
+        "books.rating.write-behind.max-pending-books=3",
+        "spring.task.execution.pool.core-size=1"})
+class RatingWriteBehindIntegrationTest {
+
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookFacetService bookFacetService;
+    @Autowired
+    private PendingRatingDeltas pendingRatingDeltas;
+    @Autowired
+    private RatingAggregateFlushJob ratingAggregateFlushJob;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    private Book book;
+    private Client client1;
+    private Client client2;
+
+    @BeforeEach
+    public void setUp() {
+        ratingAggregateFlushJob.flush();
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        book = bookRepository.save(new Book("Buffered Book", 2020, 0.0));
+        client1 = clientRepository.save(new Client("John Doe"));
+        client2 = clientRepository.save(new Client("Jane Smith"));
+    }
+
+    @Test
+    void rateBook_BuffersAggregatesAndReadsMergeThem() {
+        Book rated = bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 5);
+        assertEquals(5.0, rated.getAvgRating());
+        bookRatingService.rateBook(book.getBookId(), client2.getClientId(), 2);
+        bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 3);
+
+        assertEquals(0L, storedRatingCount(book.getBookId()));
+        assertEquals(1, pendingRatingDeltas.size());
+        assertNull(bookService.getBookVersion(book.getBookId()));
+
+        Book merged = bookService.getBookById(book.getBookId());
+        assertEquals(2.5, merged.getAvgRating());
+        assertEquals(2L, merged.getRatingCount());
+        assertEquals(2.5, bookService.filterBooks("Buffered", null, null, null).get(0).getAvgRating());
+
+        assertEquals(1, ratingAggregateFlushJob.flush());
+
+        Book stored = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(5L, stored.getRatingSum());
+        assertEquals(2L, stored.getRatingCount());
+        assertEquals(2.5, stored.getAvgRating());
+        assertEquals(2.5, bookService.getBookById(book.getBookId()).getAvgRating());
+        assertNotNull(bookService.getBookVersion(book.getBookId()));
+    }
+
+    @Test
+    void reachingThreshold_FlushesInTheBackground() throws InterruptedException {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            books.add(bookRepository.save(new Book("Threshold Book " + i, 2021, 0.0)));
+        }
+
+        for (Book thresholdBook : books) {
+            bookRatingService.rateBook(thresholdBook.getBookId(), client1.getClientId(), 4);
+        }
+
+        // The buffer is drained before the flush commits, so wait for the stored aggregates
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (storedRatingCount(books.get(2).getBookId()) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        for (Book thresholdBook : books) {
+            assertEquals(1L, storedRatingCount(thresholdBook.getBookId()));
+        }
+    }
+
+    @Test
+    void rebuild_DropsDeltasItRecomputes() {
+        bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 4);
+
+        bookRatingService.rebuildRatingAggregates();
+
+        assertEquals(0, pendingRatingDeltas.size());
+        assertEquals(4.0, bookService.getBookById(book.getBookId()).getAvgRating());
+        assertEquals(1L, storedRatingCount(book.getBookId()));
+    }
+
+    @Test
+    void ratingFilters_FlushBufferedRatingsFirst() {
+        bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 5);
+
+        assertEquals(List.of(book.getBookId()),
+                bookService.filterBooks(null, null, null, 4.0).stream().map(Book::getBookId).toList());
+        assertEquals(0, pendingRatingDeltas.size());
+        assertEquals(1L, storedRatingCount(book.getBookId()));
+
+        bookRatingService.rateBook(book.getBookId(), client2.getClientId(), 1);
+        assertTrue(bookService.filterBooksPage(null, null, null, 4.0, null, 10).getBooks().isEmpty());
+
+        bookRatingService.rateBook(book.getBookId(), client2.getClientId(), 5);
+        assertEquals(1L, bookFacetService.getFacets(null, null, null, null).getRatings().get(5));
+        assertEquals(0, pendingRatingDeltas.size());
+    }
+
+    @Test
+    void ratingFilterOnTheTaskExecutor_DoesNotWaitForThatExecutor() throws Exception {
+        bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 5);
+
+        // Streamed responses filter on the task executor, the flush must not queue behind them
+        Future<List<Book>> streamed = applicationTaskExecutor.submit(() -> bookService.filterBooks(null, null, null, 4.0));
+
+        assertEquals(List.of(book.getBookId()), streamed.get(10, TimeUnit.SECONDS).stream().map(Book::getBookId).toList());
+        assertEquals(0, pendingRatingDeltas.size());
+    }
+
+    @Test
+    void rebuildRightAfterRatingCommitted_CountsTheRatingOnce() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Registered first, so it runs after the commit but before the rating buffers its delta
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        Future<Integer> rebuild = executor.submit(bookRatingService::rebuildRatingAggregates);
+                        try {
+                            rebuild.get(500, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException ex) {
+                            // The rebuild waits for the rating to complete
+                        } catch (Exception ex) {
+                            throw new IllegalStateException(ex);
+                        }
+                    }
+                });
+                bookRatingService.rateBook(book.getBookId(), client1.getClientId(), 4);
+            });
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        ratingAggregateFlushJob.flush();
+
+        Book stored = bookRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(1L, stored.getRatingCount());
+        assertEquals(4L, stored.getRatingSum());
+    }
+
+    private long storedRatingCount(Integer bookId) {
+        return jdbcTemplate.queryForObject("SELECT rating_count FROM books WHERE book_id = ?", Long.class, bookId);
+    }
+}
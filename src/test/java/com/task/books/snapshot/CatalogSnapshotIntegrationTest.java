@@ -0,0 +1,210 @@
+package com.task.books.snapshot;
+
+import com.task.books.model.Author;
+import com.task.books.model.Book;
+import com.task.books.model.Client;
+import com.task.books.repository.*;
+import com.task.books.service.BookRatingService;
+import com.task.books.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"books.snapshot.enabled=true", "books.snapshot.retry-interval=1h"})
+class CatalogSnapshotIntegrationTest {
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRatingService bookRatingService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @SpyBean
+    private CatalogSnapshotRepository catalogSnapshotRepository;
+
+    private Author tolkien;
+    private Client client;
+    private Book hobbit;
+    private Book rings;
+    private Book dune;
+
+    @BeforeEach
+    public void setUp() {
+        bookRatingRepository.deleteAll();
+        bookRepository.deleteAll();
+        clientRepository.deleteAll();
+        authorRepository.deleteAll();
+
+        tolkien = authorRepository.save(new Author("J.R.R. Tolkien"));
+        Author herbert = authorRepository.save(new Author("Frank Herbert"));
+        hobbit = book("The Hobbit", 1937, tolkien);
+        rings = book("The Lord of the Rings", 1954, tolkien);
+        dune = book("Dune", 1965, herbert);
+        book("100% Pure_Fiction", 1965);
+        client = clientRepository.save(new Client("John Doe"));
+
+        bookRatingService.rateBook(rings.getBookId(), client.getClientId(), 5);
+        bookRatingService.rateBook(dune.getBookId(), client.getClientId(), 3);
+        // Repositories bypass the change events, so start from what is stored
+        catalogSnapshot.rebuild();
+    }
+
+    @Test
+    void filter_MatchesDatabaseFilters() {
+        assertSameAsDatabase(null, null, null, null);
+        assertSameAsDatabase("", null, "", null);
+        assertSameAsDatabase("THE", null, null, null);
+        assertSameAsDatabase(null, 1965, null, null);
+        assertSameAsDatabase(null, null, "tolk", null);
+        assertSameAsDatabase(null, null, null, 3.0);
+        assertSameAsDatabase("lord", 1954, "tolkien", 4.5);
+        assertSameAsDatabase("100%", null, null, null);
+        assertSameAsDatabase("e_f", null, null, null);
+        assertSameAsDatabase("missing", null, null, null);
+        assertSameAsDatabase(null, null, "missing", null);
+    }
+
+    @Test
+    void filterBooks_LoadsSnapshotMatchesInIdOrder() {
+        List<Book> books = bookService.filterBooks(null, null, "tolkien", null);
+
+        assertEquals(List.of(hobbit.getBookId(), rings.getBookId()), books.stream().map(Book::getBookId).toList());
+        assertEquals("The Lord of the Rings", books.get(1).getTitle());
+    }
+
+    @Test
+    void changes_AreAppliedIncrementally() {
+        Book added = new Book("The Silmarillion", 1977, 0.0);
+        added.setAuthors(Set.of(tolkien));
+        added = bookService.addBook(added);
+        bookService.updateBook(hobbit.getBookId(), new Book("There and Back Again", 1938, 0.0));
+        bookService.deleteBook(dune.getBookId());
+        bookRatingService.rateBook(added.getBookId(), client.getClientId(), 4);
+
+        assertArrayEquals(new int[]{hobbit.getBookId(), rings.getBookId(), added.getBookId()},
+                catalogSnapshot.filter(null, null, "tolkien", null));
+        assertArrayEquals(new int[]{hobbit.getBookId()}, catalogSnapshot.filter("back again", 1938, null, null));
+        assertArrayEquals(new int[0], catalogSnapshot.filter("hobbit", null, null, null));
+        assertArrayEquals(new int[0], catalogSnapshot.filter("dune", null, null, null));
+        assertArrayEquals(new int[]{rings.getBookId(), added.getBookId()}, catalogSnapshot.filter(null, null, null, 4.0));
+        assertEquals(4, catalogSnapshot.size());
+
+        assertSameAsDatabase(null, null, null, null);
+        assertSameAsDatabase(null, null, "tolkien", 3.5);
+    }
+
+    @Test
+    void changesCommittedDuringRebuild_AreApplied() throws Exception {
+        Thread writer = new Thread(() -> {
+            Book added = new Book("Unfinished Tales", 1980, 0.0);
+            added.setAuthors(Set.of(tolkien));
+            bookService.addBook(added);
+        });
+        // The book is committed after the books were read, before the author links are
+        doAnswer(invocation -> {
+            writer.start();
+            awaitCommittedAndSettled(writer, "Unfinished Tales");
+            return invocation.callRealMethod();
+        }).when(catalogSnapshotRepository).forEachAuthorLink(any(CatalogSnapshotRepository.AuthorLinkHandler.class));
+
+        catalogSnapshot.rebuild();
+        writer.join(5000);
+
+        assertFalse(writer.isAlive());
+        assertSameAsDatabase(null, null, "tolkien", null);
+        assertEquals(1, catalogSnapshot.filter("unfinished", 1980, "tolkien", null).length);
+    }
+
+    @Test
+    void changeBeingRead_DoesNotBlockFilters() throws Exception {
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            AtomicReference<int[]> filteredMeanwhile = new AtomicReference<>();
+            doAnswer(invocation -> {
+                filteredMeanwhile.set(reader.submit(() -> catalogSnapshot.filter("hobbit", null, null, null))
+                        .get(5, TimeUnit.SECONDS));
+                return invocation.callRealMethod();
+            }).when(catalogSnapshotRepository).forEachBook(anyCollection(), any(CatalogSnapshotRepository.BookRowHandler.class));
+
+            bookService.updateBook(hobbit.getBookId(), new Book("The Hobbit", 1938, 0.0));
+
+            assertArrayEquals(new int[]{hobbit.getBookId()}, filteredMeanwhile.get());
+            assertArrayEquals(new int[]{hobbit.getBookId()}, catalogSnapshot.filter("hobbit", 1938, null, null));
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoad_IsNotRetriedBeforeTheRetryInterval() {
+        clearInvocations(catalogSnapshotRepository);
+        doThrow(new DataAccessResourceFailureException("Database unavailable"))
+                .when(catalogSnapshotRepository).forEachBook(any(CatalogSnapshotRepository.BookRowHandler.class));
+
+        catalogSnapshot.rebuild();
+
+        assertNull(catalogSnapshot.filter(null, null, null, null));
+        assertNull(catalogSnapshot.filter("hobbit", null, null, null));
+        assertEquals(1, bookService.filterBooks("hobbit", null, null, null).size());
+        // The failed rebuild only, the filters were answered by the database
+        verify(catalogSnapshotRepository, times(1)).forEachBook(any(CatalogSnapshotRepository.BookRowHandler.class));
+    }
+
+    // Waits until the writer committed and then either finished or blocked on the snapshot
+    private void awaitCommittedAndSettled(Thread writer, String title) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            boolean committed = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM books WHERE title = ?", Integer.class, title) > 0;
+            Thread.State state = writer.getState();
+            if (committed && (state == Thread.State.WAITING || state == Thread.State.TERMINATED)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("The writer did not commit");
+    }
+
+    private void assertSameAsDatabase(String title, Integer year, String author, Double rating) {
+        int[] expected = bookRepository.findAll(BookSpecifications.matching(title, year, author, rating), Sort.by("bookId"))
+                .stream().mapToInt(Book::getBookId).toArray();
+        int[] actual = catalogSnapshot.filter(title, year, author, rating);
+        assertArrayEquals(expected, actual, () -> Arrays.toString(new Object[]{title, year, author, rating}));
+    }
+
+    private Book book(String title, int year, Author... authors) {
+        Book book = new Book(title, year, 0.0);
+        book.setAuthors(Set.of(authors));
+        return bookRepository.save(book);
+    }
+}
@@ -0,0 +1,3 @@
+-- Run by Hibernate after it created the test schema, for the tables no entity maps (see db/migration)
+CREATE TABLE IF NOT EXISTS catalog_generation (slot INTEGER DEFAULT 0 NOT NULL PRIMARY KEY, generation BIGINT NOT NULL);
+INSERT INTO catalog_generation (slot, generation) SELECT s.slot, 0 FROM (VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9), (10), (11), (12), (13), (14), (15)) AS s (slot);